@@ -1,8 +1,11 @@
 package com.gymai.plan_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.concurrent.Executor;
@@ -10,14 +13,30 @@ import java.util.concurrent.Executor;
 @Configuration
 public class AppConfig {
 
+  // Plan fan-out runs blocking JDBC/Redis calls, so it gets virtual threads
+  // instead of the common ForkJoinPool. The concurrency limit (sized to the
+  // connection pool) makes callers wait for a slot rather than pile up.
   @Bean("planExecutor")
-  public Executor planExecutor() {
-    ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
-    exec.setCorePoolSize(4);
-    exec.setMaxPoolSize(10);
-    exec.setQueueCapacity(100);
-    exec.setThreadNamePrefix("plan-exec-");
-    exec.initialize();
+  public Executor planExecutor(@Value("${app.executor.plan.max-concurrency:10}") int maxConcurrency,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    PlanTaskDecorator taskDecorator = new PlanTaskDecorator();
+    meterRegistry.ifAvailable(registry -> taskDecorator.bindTo(registry, maxConcurrency));
+
+    SimpleAsyncTaskExecutor exec = new SimpleAsyncTaskExecutor("plan-exec-");
+    exec.setVirtualThreads(true);
+    exec.setConcurrencyLimit(maxConcurrency);
+    exec.setTaskDecorator(taskDecorator);
+    return exec;
+  }
+
+  // Background refreshes of stale cache entries. Kept off planExecutor so they
+  // never take a slot from a user-facing request; PlanRequestCoalescer bounds
+  // how many run at once.
+  @Bean("planRefreshExecutor")
+  public Executor planRefreshExecutor() {
+    SimpleAsyncTaskExecutor exec = new SimpleAsyncTaskExecutor("plan-refresh-");
+    exec.setVirtualThreads(true);
+    exec.setTaskDecorator(new PlanTaskDecorator());
     return exec;
   }
 
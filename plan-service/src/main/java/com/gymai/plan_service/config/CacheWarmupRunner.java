@@ -0,0 +1,233 @@
+package com.gymai.plan_service.config;
+
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
+import com.gymai.plan_service.dto.UserProfileDTO;
+import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.mapper.UserMapper;
+import com.gymai.plan_service.repository.PlanSnapshotRepository;
+import com.gymai.plan_service.repository.UserRepository;
+import com.gymai.plan_service.service.CacheService;
+import com.gymai.plan_service.service.DietPlanService;
+import com.gymai.plan_service.service.ExerciseIndex;
+import com.gymai.plan_service.service.FoodCatalogIndex;
+import com.gymai.plan_service.service.NutritionCalculatorService;
+import com.gymai.plan_service.service.WorkoutPlanService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preloads the catalog indexes and the plans of recently active users before
+ * the instance reports ready, so the first requests after a deploy do not all
+ * miss the cache at once.
+ *
+ * Users are read page by page, newest plan first, and warmed at bounded
+ * concurrency. Spring Boot only switches readiness to ACCEPTING_TRAFFIC once
+ * runners return, so this runner waits until {@code ready-fraction} of them
+ * are warm (or the timeout passes) and leaves the rest to finish in the
+ * background.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheWarmupRunner implements ApplicationRunner {
+
+  @Autowired
+  private FoodCatalogIndex foodCatalogIndex;
+
+  @Autowired
+  private ExerciseIndex exerciseIndex;
+
+  @Autowired
+  private PlanSnapshotRepository planSnapshotRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserMapper userMapper;
+
+  @Autowired
+  private DietPlanService dietPlanService;
+
+  @Autowired
+  private WorkoutPlanService workoutPlanService;
+
+  @Autowired
+  private NutritionCalculatorService nutritionCalculatorService;
+
+  @Autowired
+  private CacheService cacheService;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  // "Recently active" = a plan written within this many days
+  @Value("${app.warmup.recent-days:30}")
+  private int recentDays;
+
+  @Value("${app.warmup.max-users:5000}")
+  private int maxUsers;
+
+  @Value("${app.warmup.page-size:500}")
+  private int pageSize;
+
+  // Each user costs a few queries; keep well below the JDBC pool size
+  @Value("${app.warmup.concurrency:4}")
+  private int concurrency;
+
+  @Value("${app.warmup.ready-fraction:0.8}")
+  private double readyFraction;
+
+  @Value("${app.warmup.timeout-seconds:60}")
+  private long timeoutSeconds;
+
+  private final AtomicInteger warmed = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private volatile int total;
+  private volatile boolean stopped;
+
+  @Override
+  public void run(ApplicationArguments args) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    preloadIndexes();
+
+    if (!cacheService.isCacheAvailable()) {
+      log.info("Cache warm-up skipped: cache is not available");
+      return;
+    }
+
+    LocalDateTime since = LocalDateTime.now().minusDays(recentDays);
+    total = (int) Math.min(planSnapshotRepository.countRecentUsers(since), maxUsers);
+    if (total == 0) {
+      log.info("Cache warm-up skipped: no users with plans in the last {} days", recentDays);
+      return;
+    }
+
+    if (meterRegistry != null) {
+      Gauge.builder("cache.warmup.progress", this, runner -> (double) runner.warmed.get() / runner.total)
+          .description("Fraction of recently active users whose plans were preloaded at startup")
+          .register(meterRegistry);
+    }
+
+    CountDownLatch ready = new CountDownLatch((int) Math.ceil(total * readyFraction));
+    Thread.ofVirtual().name("cache-warmup").start(() -> warmAll(since, ready, start));
+
+    if (ready.await(timeoutSeconds, TimeUnit.SECONDS)) {
+      log.info("Cache warm-up reached {}/{} users in {} ms; reporting ready", warmed.get(), total,
+          System.currentTimeMillis() - start);
+    } else {
+      log.warn("Cache warm-up timed out after {} s at {}/{} users; reporting ready anyway", timeoutSeconds,
+          warmed.get(), total);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    stopped = true;
+  }
+
+  private void preloadIndexes() {
+    try {
+      foodCatalogIndex.refresh();
+      exerciseIndex.refresh();
+    } catch (Exception e) {
+      // The indexes build lazily on first use instead
+      log.warn("Failed to preload catalog indexes - {}", e.getMessage());
+    }
+  }
+
+  private void warmAll(LocalDateTime since, CountDownLatch ready, long start) {
+    Semaphore permits = new Semaphore(concurrency);
+    int progressStep = Math.max(1, total / 10);
+    AtomicInteger processed = new AtomicInteger();
+
+    // Closing the executor waits for the users still in flight
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int page = 0; page * pageSize < total && !stopped; page++) {
+        int size = Math.min(pageSize, total - page * pageSize);
+        List<Long> userIds = planSnapshotRepository.findRecentUserIds(since, PageRequest.of(page, pageSize));
+        for (Long userId : userIds.subList(0, Math.min(size, userIds.size()))) {
+          if (stopped) {
+            break;
+          }
+          permits.acquire();
+          executor.execute(() -> {
+            try {
+              warmUser(userId);
+              warmed.incrementAndGet();
+              ready.countDown();
+            } catch (Exception e) {
+              failed.incrementAndGet();
+              log.debug("Cache warm-up failed for userId: {} - {}", userId, e.getMessage());
+            } finally {
+              permits.release();
+              int done = processed.incrementAndGet();
+              if (done % progressStep == 0) {
+                log.info("Cache warm-up progress: {}/{} users ({} failed)", done, total, failed.get());
+              }
+            }
+          });
+        }
+        if (userIds.size() < size) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.warn("Cache warm-up stopped early - {}", e.getMessage());
+    } finally {
+      // Nothing left to wait for, even if fewer users than counted were warmed
+      while (ready.getCount() > 0) {
+        ready.countDown();
+      }
+    }
+
+    log.info("Cache warm-up finished: {} warmed, {} failed of {} users in {} ms", warmed.get(), failed.get(), total,
+        System.currentTimeMillis() - start);
+  }
+
+  // Caches every component of the user's plans response, unless it already is
+  private void warmUser(Long userId) {
+    Optional<User> userOpt = userRepository.findByUserId(userId);
+    if (userOpt.isEmpty()) {
+      return;
+    }
+    User user = userOpt.get();
+    UserProfileDTO profile = userMapper.toDTO(user);
+    if (!profile.isProfileComplete() || cacheService.getCachedPlanComponents(user.getEmail()) != null) {
+      return;
+    }
+
+    SimpleDietPlanDTO dietPlan = dietPlanService.getExistingDietPlanDTO(userId);
+    if (dietPlan != null) {
+      cacheService.cacheDietPlan(userId, dietPlan);
+    }
+    SimpleWorkoutPlanDTO workoutPlan = workoutPlanService.getExistingWorkoutPlanDTO(userId);
+    if (workoutPlan != null) {
+      cacheService.cacheWorkoutPlan(userId, workoutPlan);
+    }
+    cacheService.cacheNutritionAnalysis(userId, nutritionCalculatorService.createNutritionAnalysis(user));
+    cacheService.cacheUserProfile(user.getEmail(), profile);
+  }
+}
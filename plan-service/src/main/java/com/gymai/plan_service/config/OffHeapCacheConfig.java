@@ -0,0 +1,37 @@
+package com.gymai.plan_service.config;
+
+import com.gymai.plan_service.service.CacheStore;
+import com.gymai.plan_service.service.CacheValueCodec;
+import com.gymai.plan_service.service.OffHeapCacheStore;
+import com.gymai.plan_service.service.SmileCacheValueCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.file.Path;
+
+// Single-node installs without Redis: CacheService keeps its L2 off-heap
+@Configuration
+@ConditionalOnExpression("${cache.offheap.enabled:false} and !${cache.redis.enabled:false}")
+@Slf4j
+public class OffHeapCacheConfig {
+
+  @Bean(destroyMethod = "close")
+  public CacheStore cacheStore(@Value("${cache.offheap.max-size-mb:64}") long maxSizeMb,
+      @Value("${cache.offheap.snapshot-file:}") String snapshotFile) {
+    Path snapshot = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+    log.info("Off-heap cache store: {} MB, snapshot: {}", maxSizeMb, snapshot != null ? snapshot : "none");
+    return new OffHeapCacheStore(maxSizeMb * 1024 * 1024, snapshot);
+  }
+
+  // Nothing was ever written by the JSON serializer here; it only backs the
+  // codec's legacy fallback
+  @Bean
+  public CacheValueCodec cacheValueCodec(
+      @Value("${cache.redis.codec.compression-threshold:1024}") int compressionThreshold) {
+    return new SmileCacheValueCodec(new GenericJackson2JsonRedisSerializer(), compressionThreshold);
+  }
+}
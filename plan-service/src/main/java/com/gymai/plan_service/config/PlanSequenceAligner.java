@@ -0,0 +1,70 @@
+package com.gymai.plan_service.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the pooled id sequences of the plan tables past the ids already
+ * written by the old IDENTITY columns, so new plans never collide with
+ * existing rows. Safe to run on every start: sequences only move forward.
+ *
+ * The EntityManagerFactory depends on this bean, so alignment is done before
+ * JPA is usable at all (no repository, runner or background task can insert
+ * first). That is also before Hibernate's schema update, so missing sequences
+ * of existing tables are created here; fresh tables are left to Hibernate.
+ */
+@Component
+@Slf4j
+public class PlanSequenceAligner {
+
+  // Must match allocationSize of the @SequenceGenerator on the plan entities
+  private static final int ALLOCATION_SIZE = 50;
+
+  private static final List<String> PLAN_TABLES = List.of(
+      "diet_plans", "day_meal_plans", "meals", "food_items",
+      "workout_plans", "day_workout_plans", "workout_exercises",
+      "plan_snapshots");
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @PostConstruct
+  void align() {
+    for (String table : PLAN_TABLES) {
+      String sequence = table + "_seq";
+      try {
+        if (!Boolean.TRUE.equals(
+            jdbcTemplate.queryForObject("SELECT to_regclass('" + table + "') IS NOT NULL", Boolean.class))) {
+          continue;
+        }
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH 1 INCREMENT BY "
+            + ALLOCATION_SIZE);
+        // Keep a full allocation block of headroom above max(id) for the pooled optimizer
+        Long value = jdbcTemplate.queryForObject(
+            "SELECT setval('" + sequence + "', GREATEST("
+                + "(SELECT COALESCE(MAX(id), 0) FROM " + table + ") + " + ALLOCATION_SIZE + ", "
+                + "(SELECT last_value FROM " + sequence + ")))",
+            Long.class);
+        log.debug("Aligned sequence {} to {}", sequence, value);
+      } catch (Exception e) {
+        log.warn("Could not align sequence {} with table {}: {}", sequence, table, e.getMessage());
+      }
+    }
+  }
+
+  /** Makes the EntityManagerFactory wait for {@link PlanSequenceAligner}. */
+  @Configuration(proxyBeanMethods = false)
+  static class EntityManagerFactoryDependsOnAligner extends EntityManagerFactoryDependsOnPostProcessor {
+
+    EntityManagerFactoryDependsOnAligner() {
+      super(PlanSequenceAligner.class);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.gymai.plan_service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carries the caller's MDC (request/user ids in log lines) onto plan executor
+ * threads and tracks how many tasks are waiting for a slot versus running.
+ *
+ * Transactions are deliberately not propagated: they are thread-bound, so
+ * each task runs in its own service-level transaction.
+ */
+class PlanTaskDecorator implements TaskDecorator {
+
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    Map<String, String> callerContext = MDC.getCopyOfContextMap();
+    waiting.incrementAndGet();
+
+    return () -> {
+      waiting.decrementAndGet();
+      active.incrementAndGet();
+      Map<String, String> previous = MDC.getCopyOfContextMap();
+      setContext(callerContext);
+      try {
+        runnable.run();
+      } finally {
+        setContext(previous);
+        active.decrementAndGet();
+      }
+    };
+  }
+
+  void bindTo(MeterRegistry registry, int concurrencyLimit) {
+    Gauge.builder("plan.executor.active", active, AtomicInteger::get)
+        .description("Plan tasks currently running")
+        .register(registry);
+    Gauge.builder("plan.executor.waiting", waiting, AtomicInteger::get)
+        .description("Plan tasks submitted but waiting for a free slot")
+        .register(registry);
+    Gauge.builder("plan.executor.limit", () -> concurrencyLimit)
+        .description("Maximum concurrently running plan tasks")
+        .register(registry);
+  }
+
+  private static void setContext(Map<String, String> context) {
+    if (context == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+}
@@ -6,7 +6,15 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gymai.plan_service.service.CacheService;
+import com.gymai.plan_service.service.CacheStore;
+import com.gymai.plan_service.service.CacheValueCodec;
+import com.gymai.plan_service.service.CatalogRefreshService;
+import com.gymai.plan_service.service.RedisCacheStore;
+import com.gymai.plan_service.service.SmileCacheValueCodec;
+import com.gymai.plan_service.service.UserLookupService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
@@ -16,9 +24,13 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -50,6 +62,32 @@ public class RedisConfig {
     return template;
   }
 
+  // Raw byte values for CacheService; encoding is done by the CacheValueCodec
+  @Bean
+  @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
+  public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory connectionFactory) {
+    RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+    template.setConnectionFactory(connectionFactory);
+    template.setKeySerializer(new StringRedisSerializer());
+    template.setValueSerializer(RedisSerializer.byteArray());
+    template.afterPropertiesSet();
+    return template;
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
+  public CacheStore cacheStore(RedisTemplate<String, byte[]> binaryRedisTemplate) {
+    return new RedisCacheStore(binaryRedisTemplate);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
+  public CacheValueCodec cacheValueCodec(
+      @Value("${cache.redis.codec.compression-threshold:1024}") int compressionThreshold) {
+    log.info("Cache values encoded as Smile, LZ4 above {} bytes", compressionThreshold);
+    return new SmileCacheValueCodec(jsonRedisSerializer(), compressionThreshold);
+  }
+
   @Bean
   @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
   public GenericJackson2JsonRedisSerializer jsonRedisSerializer() {
@@ -68,6 +106,31 @@ public class RedisConfig {
     return new GenericJackson2JsonRedisSerializer(objectMapper);
   }
 
+  // Evicts this replica's L1 entries when another replica changes or deletes
+  // them, adds users registered on other replicas to the known-email filter,
+  // and rebuilds catalog indexes changed on other replicas
+  @Bean
+  @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
+  public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+      CacheService cacheService, UserLookupService userLookupService, CatalogRefreshService catalogRefreshService) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(
+        (message, pattern) -> cacheService.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(CacheService.INVALIDATION_CHANNEL));
+    container.addMessageListener(
+        (message, pattern) -> userLookupService.onRegistrationMessage(
+            new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(UserLookupService.REGISTRATION_CHANNEL));
+    container.addMessageListener(
+        (message, pattern) -> catalogRefreshService.onCatalogMessage(
+            new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(CatalogRefreshService.CATALOG_CHANNEL));
+
+    log.info("Listening for cache invalidations on channel: {}", CacheService.INVALIDATION_CHANNEL);
+    return container;
+  }
+
   @Bean
   @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
   public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
@@ -19,6 +19,7 @@ import com.gymai.plan_service.entity.Exercise;
 import com.gymai.plan_service.entity.Food;
 import com.gymai.plan_service.repository.ExerciseRepository;
 import com.gymai.plan_service.repository.FoodRepository;
+import com.gymai.plan_service.service.CatalogRefreshService;
 
 // Additional utility controller for food and exercise management
 @RestController
@@ -32,11 +33,16 @@ public class AdminController {
     @Autowired
     private ExerciseRepository exerciseRepository;
 
+    @Autowired
+    private CatalogRefreshService catalogRefreshService;
+
     // Add custom food
     @PostMapping("/foods")
     public ResponseEntity<Food> addFood(@RequestBody Food food) {
         try {
             Food savedFood = foodRepository.save(food);
+            // Committed by now; refreshes every replica's index and never throws
+            catalogRefreshService.foodsChanged();
             return ResponseEntity.ok(savedFood);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -48,6 +54,8 @@ public class AdminController {
     public ResponseEntity<Exercise> addExercise(@RequestBody Exercise exercise) {
         try {
             Exercise savedExercise = exerciseRepository.save(exercise);
+            // Committed by now; refreshes every replica's index and never throws
+            catalogRefreshService.exercisesChanged();
             return ResponseEntity.ok(savedExercise);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
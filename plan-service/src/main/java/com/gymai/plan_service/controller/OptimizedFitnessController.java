@@ -1,19 +1,23 @@
 package com.gymai.plan_service.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.gymai.plan_service.dto.*;
 import com.gymai.plan_service.entity.User;
 import com.gymai.plan_service.mapper.*;
-import com.gymai.plan_service.repository.UserRepository;
 import com.gymai.plan_service.service.*;
 import lombok.extern.slf4j.Slf4j;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/fitness")
@@ -22,7 +26,7 @@ import java.math.RoundingMode;
 public class OptimizedFitnessController {
 
   @Autowired
-  private UserRepository userRepository;
+  private UserLookupService userLookupService;
 
   @Autowired
   private DietPlanService dietPlanService;
@@ -30,6 +34,9 @@ public class OptimizedFitnessController {
   @Autowired
   private WorkoutPlanService workoutPlanService;
 
+  @Autowired
+  private PlanPoolService planPoolService;
+
   @Autowired
   private NutritionCalculatorService nutritionCalculatorService;
 
@@ -37,18 +44,21 @@ public class OptimizedFitnessController {
   private CacheService cacheService;
 
   @Autowired
-  private UserMapper userMapper;
+  private PlanRequestCoalescer planRequestCoalescer;
 
   @Autowired
-  private DietPlanMapper dietPlanMapper;
+  @Qualifier("planExecutor")
+  private Executor planExecutor;
 
   @Autowired
-  private WorkoutPlanMapper workoutPlanMapper;
+  @Qualifier("planRefreshExecutor")
+  private Executor planRefreshExecutor;
 
-  // Helper method to round to 1 decimal place
-  private double roundTo1Decimal(double value) {
-    return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-  }
+  @Value("${app.executor.plan.timeout-ms:30000}")
+  private long planTimeoutMs;
+
+  @Autowired
+  private UserMapper userMapper;
 
   // Check if user profile exists and is complete (with caching)
   @PostMapping("/user/profile-check")
@@ -67,7 +77,7 @@ public class OptimizedFitnessController {
         }
       }
 
-      Optional<User> userOpt = userRepository.findByEmail(userRequest.getEmail());
+      Optional<User> userOpt = userLookupService.findByEmail(userRequest.getEmail());
 
       if (!userOpt.isPresent()) {
         log.info("User not found with email: {}", userRequest.getEmail());
@@ -98,18 +108,34 @@ public class OptimizedFitnessController {
   // Get user plans (optimized with Redis caching) - fetches existing or generates
   // if missing
   @PostMapping("/user/plans")
-  public ResponseEntity<OptimizedPlansResponseDTO> getUserPlansOptimized(@RequestBody UserProfileDTO userRequest) {
+  public ResponseEntity<?> getUserPlansOptimized(@RequestBody UserProfileDTO userRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     log.info("Fetching optimized plans for email: {}", userRequest.getEmail());
 
     try {
-      // Check complete plans cache first
-      OptimizedPlansResponseDTO cachedResponse = cacheService.getCachedPlansResponse(userRequest.getEmail());
+      // Unchanged plans: the ETag comes from the cached profile and plan
+      // versions, so no user row, plan or body is loaded to answer
+      String etag = cacheService.getCachedPlansEtag(userRequest.getEmail());
+      if (etagMatches(ifNoneMatch, etag)) {
+        log.debug("Plans not modified for email: {}", userRequest.getEmail());
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+
+      // Check complete plans cache first, then compose it from cached components
+      CacheService.CachedBody cachedResponse = cacheService.getCachedPlansResponse(userRequest.getEmail(), etag);
+      if (cachedResponse == null) {
+        cachedResponse = composeCachedPlansResponse(userRequest.getEmail());
+      }
       if (cachedResponse != null) {
         log.info("Retrieved complete plans from cache for email: {}", userRequest.getEmail());
-        return ResponseEntity.ok(cachedResponse);
+        // Serve what we have; a stale or hot entry is revalidated in the background
+        if (cacheService.shouldRefreshPlansResponse(userRequest.getEmail(), cachedResponse)) {
+          refreshPlansResponseInBackground(userRequest.getEmail());
+        }
+        return jsonBody(cachedResponse, ifNoneMatch);
       }
 
-      Optional<User> userOpt = userRepository.findByEmail(userRequest.getEmail());
+      Optional<User> userOpt = userLookupService.findByEmail(userRequest.getEmail());
 
       if (!userOpt.isPresent()) {
         log.warn("User not found with email: {}", userRequest.getEmail());
@@ -132,75 +158,13 @@ public class OptimizedFitnessController {
         return ResponseEntity.ok(response);
       }
 
-      // Use parallel execution for better performance with caching
-      CompletableFuture<SimpleDietPlanDTO> dietPlanFuture = CompletableFuture.supplyAsync(() -> {
-        try {
-          // Check cache first for DTO
-          SimpleDietPlanDTO cachedDietPlan = cacheService.getCachedDietPlan(user.getUserId());
-          if (cachedDietPlan != null) {
-            return cachedDietPlan;
-          }
-
-          var existingDietPlan = dietPlanService.getExistingDietPlan(user.getUserId());
-          if (existingDietPlan == null) {
-            log.info("Generating new diet plan for user: {}", userRequest.getEmail());
-            var newDietPlan = dietPlanService.generateCustomDietPlan(user);
-            return dietPlanMapper.toDTO(newDietPlan);
-          }
-          SimpleDietPlanDTO planDTO = dietPlanMapper.toDTO(existingDietPlan);
-          // Cache the DTO result
-          cacheService.cacheDietPlan(user.getUserId(), planDTO);
-          return planDTO;
-        } catch (Exception e) {
-          log.error("Error processing diet plan for user: {}", user.getUserId(), e);
-          throw new RuntimeException("Error processing diet plan", e);
-        }
-      });
-
-      CompletableFuture<SimpleWorkoutPlanDTO> workoutPlanFuture = CompletableFuture.supplyAsync(() -> {
-        try {
-          // Check cache first for DTO
-          SimpleWorkoutPlanDTO cachedWorkoutPlan = cacheService.getCachedWorkoutPlan(user.getUserId());
-          if (cachedWorkoutPlan != null) {
-            return cachedWorkoutPlan;
-          }
-
-          var existingWorkoutPlan = workoutPlanService.getExistingWorkoutPlan(user.getUserId());
-          if (existingWorkoutPlan == null) {
-            log.info("Generating new workout plan for user: {}", userRequest.getEmail());
-            var newWorkoutPlan = workoutPlanService.generateCustomWorkoutPlan(user);
-            return workoutPlanMapper.toDTO(newWorkoutPlan);
-          }
-          SimpleWorkoutPlanDTO planDTO = workoutPlanMapper.toDTO(existingWorkoutPlan);
-          // Cache the DTO result
-          cacheService.cacheWorkoutPlan(user.getUserId(), planDTO);
-          return planDTO;
-        } catch (Exception e) {
-          log.error("Error processing workout plan for user: {}", user.getUserId(), e);
-          throw new RuntimeException("Error processing workout plan", e);
-        }
-      });
-
-      // Wait for both plans to complete
-      SimpleDietPlanDTO dietPlanDTO = dietPlanFuture.join();
-      SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanFuture.join();
-
-      // Get nutrition analysis (with caching)
-      NutritionAnalysis nutritionAnalysis = getCachedOrCalculateNutrition(user);
-
-      OptimizedPlansResponseDTO response = new OptimizedPlansResponseDTO();
-      response.setUser(userDTO);
-      response.setDietPlan(dietPlanDTO);
-      response.setWorkoutPlan(workoutPlanDTO);
-      response.setNutritionAnalysis(nutritionAnalysis);
-      response.setPlansExist(true);
-      response.setSummary(generateSummary(userDTO, dietPlanDTO, workoutPlanDTO));
+      OptimizedPlansResponseDTO response = buildPlansResponse(user, userDTO);
 
-      // Cache the complete response
-      cacheService.cachePlansResponse(userRequest.getEmail(), response);
+      // Cache the complete response (serialized once, reused for this reply)
+      CacheService.CachedBody body = cacheService.cachePlansResponse(userRequest.getEmail(), response);
 
       log.info("Successfully fetched/generated and cached plans for email: {}", userRequest.getEmail());
-      return ResponseEntity.ok(response);
+      return body != null ? jsonBody(body, ifNoneMatch) : ResponseEntity.ok(response);
 
     } catch (Exception e) {
       log.error("Error fetching plans for email: {}", userRequest.getEmail(), e);
@@ -210,56 +174,50 @@ public class OptimizedFitnessController {
   }
 
   @PostMapping("/user/complete-profile")
-  public ResponseEntity<OptimizedPlansResponseDTO> completeUserProfile(@RequestBody UserProfileDTO userProfile) {
+  public ResponseEntity<?> completeUserProfile(@RequestBody UserProfileDTO userProfile) {
     log.info("Completing (create/update) profile and generating plans for email: {}", userProfile.getEmail());
 
     try {
       // Find existing user or create a new one
-      User user = userRepository.findByEmail(userProfile.getEmail()).orElse(new User());
+      User user = userLookupService.findByEmailForWrite(userProfile.getEmail()).orElse(new User());
 
       // Update user details from DTO
       updateUserFromDTO(user, userProfile);
-      final User savedUser = userRepository.save(user);
+      final User savedUser = userLookupService.save(user);
       log.info("User profile saved for email: {} with userId: {}", userProfile.getEmail(), savedUser.getUserId());
 
       // Invalidate old caches for this user (important before regenerating)
       cacheService.invalidateAllUserCache(userProfile.getEmail(), savedUser.getUserId());
 
-      // Generate fresh diet + workout plans in parallel
-      CompletableFuture<SimpleDietPlanDTO> dietPlanFuture = CompletableFuture
-          .supplyAsync(() -> dietPlanMapper.toDTO(dietPlanService.regenerateDietPlan(savedUser)));
+      // Claim pooled (or generate fresh) diet + workout plans in parallel
+      CompletableFuture<SimpleDietPlanDTO> dietPlanFuture = supplyAsync(
+          () -> planPoolService.claimOrRegenerateDietPlan(savedUser));
 
-      CompletableFuture<SimpleWorkoutPlanDTO> workoutPlanFuture = CompletableFuture
-          .supplyAsync(() -> workoutPlanMapper.toDTO(workoutPlanService.regenerateWorkoutPlan(savedUser)));
+      CompletableFuture<SimpleWorkoutPlanDTO> workoutPlanFuture = supplyAsync(
+          () -> planPoolService.claimOrRegenerateWorkoutPlan(savedUser));
 
       // Wait for both to finish
       SimpleDietPlanDTO dietPlanDTO = dietPlanFuture.join();
       SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanFuture.join();
 
       // Nutrition analysis
-      var needs = nutritionCalculatorService.calculateNutritionalNeeds(savedUser);
-      NutritionAnalysis nutritionAnalysis = createNutritionAnalysis(savedUser, needs);
+      NutritionAnalysis nutritionAnalysis = nutritionCalculatorService.createNutritionAnalysis(savedUser);
 
       // Cache nutrition analysis
       cacheService.cacheNutritionAnalysis(savedUser.getUserId(), nutritionAnalysis);
 
       // Build response
       UserProfileDTO updatedUserDTO = userMapper.toDTO(savedUser);
-      OptimizedPlansResponseDTO response = new OptimizedPlansResponseDTO();
-      response.setUser(updatedUserDTO);
-      response.setDietPlan(dietPlanDTO);
-      response.setWorkoutPlan(workoutPlanDTO);
-      response.setNutritionAnalysis(nutritionAnalysis);
-      response.setPlansExist(true);
-      response.setSummary(generateSummary(updatedUserDTO, dietPlanDTO, workoutPlanDTO));
+      OptimizedPlansResponseDTO response = plansResponse(updatedUserDTO, dietPlanDTO, workoutPlanDTO,
+          nutritionAnalysis);
 
       // Cache everything
       cacheService.cacheUserProfile(userProfile.getEmail(), updatedUserDTO);
-      cacheService.cachePlansResponse(userProfile.getEmail(), response);
+      CacheService.CachedBody body = cacheService.cachePlansResponse(userProfile.getEmail(), response);
 
       log.info("Successfully completed profile (create/update) and generated plans for email: {}",
           userProfile.getEmail());
-      return ResponseEntity.ok(response);
+      return body != null ? jsonBody(body, null) : ResponseEntity.ok(response);
 
     } catch (Exception e) {
       log.error("Error completing profile for email: {}", userProfile.getEmail(), e);
@@ -274,12 +232,12 @@ public class OptimizedFitnessController {
     log.info("Updating profile for email: {}", userProfile.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userProfile.getEmail())
+      User user = userLookupService.findByEmailForWrite(userProfile.getEmail())
           .orElseThrow(() -> new RuntimeException("User not found with email: " + userProfile.getEmail()));
 
       // Update user details
       updateUserFromDTO(user, userProfile);
-      user = userRepository.save(user);
+      user = userLookupService.save(user);
       UserProfileDTO updatedProfile = userMapper.toDTO(user);
 
       // Update cache
@@ -302,15 +260,14 @@ public class OptimizedFitnessController {
     log.info("Regenerating diet plan for email: {}", userRequest.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userRequest.getEmail())
+      User user = userLookupService.findByEmailForWrite(userRequest.getEmail())
           .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
       // Invalidate relevant caches
       cacheService.invalidateUserCache(userRequest.getEmail());
       cacheService.invalidateUserPlansCache(user.getUserId());
 
-      var dietPlan = dietPlanService.regenerateDietPlan(user);
-      SimpleDietPlanDTO dietPlanDTO = dietPlanMapper.toDTO(dietPlan);
+      SimpleDietPlanDTO dietPlanDTO = dietPlanService.regenerateDietPlanDTO(user);
 
       log.info("Diet plan regenerated successfully for email: {}", userRequest.getEmail());
       return ResponseEntity.ok(dietPlanDTO);
@@ -327,15 +284,14 @@ public class OptimizedFitnessController {
     log.info("Regenerating workout plan for email: {}", userRequest.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userRequest.getEmail())
+      User user = userLookupService.findByEmailForWrite(userRequest.getEmail())
           .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
       // Invalidate relevant caches
       cacheService.invalidateUserCache(userRequest.getEmail());
       cacheService.invalidateUserPlansCache(user.getUserId());
 
-      var workoutPlan = workoutPlanService.regenerateWorkoutPlan(user);
-      SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanMapper.toDTO(workoutPlan);
+      SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanService.regenerateWorkoutPlanDTO(user);
 
       log.info("Workout plan regenerated successfully for email: {}", userRequest.getEmail());
       return ResponseEntity.ok(workoutPlanDTO);
@@ -348,31 +304,30 @@ public class OptimizedFitnessController {
 
   // Get only diet plan (with caching)
   @PostMapping("/user/diet-plan")
-  public ResponseEntity<SimpleDietPlanDTO> getDietPlan(@RequestBody UserProfileDTO userRequest) {
+  public ResponseEntity<SimpleDietPlanDTO> getDietPlan(@RequestBody UserProfileDTO userRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     log.info("Fetching diet plan for email: {}", userRequest.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userRequest.getEmail())
-          .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
-
-      // Check cache first for DTO
-      SimpleDietPlanDTO cachedPlan = cacheService.getCachedDietPlan(user.getUserId());
-      if (cachedPlan != null) {
-        log.debug("Retrieved diet plan from cache for email: {}", userRequest.getEmail());
-        return ResponseEntity.ok(cachedPlan);
-      }
-
-      var dietPlan = dietPlanService.getExistingDietPlan(user.getUserId());
-      if (dietPlan == null) {
-        dietPlan = dietPlanService.generateCustomDietPlan(user);
+      // Unchanged plan: answer from the cached profile and plan version alone
+      UserProfileDTO cachedProfile = cacheService.getCachedUserProfile(userRequest.getEmail());
+      if (ifNoneMatch != null && cachedProfile != null && cachedProfile.getUserId() != null) {
+        String etag = planEtag("diet", cacheService.getCachedDietPlanVersion(cachedProfile.getUserId()));
+        if (etagMatches(ifNoneMatch, etag)) {
+          return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
       }
 
-      SimpleDietPlanDTO dietPlanDTO = dietPlanMapper.toDTO(dietPlan);
-
-      // Cache the DTO result
-      cacheService.cacheDietPlan(user.getUserId(), dietPlanDTO);
+      User user = userLookupService.findByEmail(userRequest.getEmail())
+          .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
-      return ResponseEntity.ok(dietPlanDTO);
+      SimpleDietPlanDTO dietPlanDTO = loadOrGenerateDietPlan(user);
+      String etag = planEtag("diet",
+          CacheService.planVersion(dietPlanDTO.getId(), dietPlanDTO.isTemplate()));
+      if (etagMatches(ifNoneMatch, etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+      return ResponseEntity.ok().eTag(etag).body(dietPlanDTO);
 
     } catch (Exception e) {
       log.error("Error fetching diet plan for email: {}", userRequest.getEmail(), e);
@@ -382,31 +337,30 @@ public class OptimizedFitnessController {
 
   // Get only workout plan (with caching)
   @PostMapping("/user/workout-plan")
-  public ResponseEntity<SimpleWorkoutPlanDTO> getWorkoutPlan(@RequestBody UserProfileDTO userRequest) {
+  public ResponseEntity<SimpleWorkoutPlanDTO> getWorkoutPlan(@RequestBody UserProfileDTO userRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     log.info("Fetching workout plan for email: {}", userRequest.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userRequest.getEmail())
-          .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
-
-      // Check cache first for DTO
-      SimpleWorkoutPlanDTO cachedPlan = cacheService.getCachedWorkoutPlan(user.getUserId());
-      if (cachedPlan != null) {
-        log.debug("Retrieved workout plan from cache for email: {}", userRequest.getEmail());
-        return ResponseEntity.ok(cachedPlan);
-      }
-
-      var workoutPlan = workoutPlanService.getExistingWorkoutPlan(user.getUserId());
-      if (workoutPlan == null) {
-        workoutPlan = workoutPlanService.generateCustomWorkoutPlan(user);
+      // Unchanged plan: answer from the cached profile and plan version alone
+      UserProfileDTO cachedProfile = cacheService.getCachedUserProfile(userRequest.getEmail());
+      if (ifNoneMatch != null && cachedProfile != null && cachedProfile.getUserId() != null) {
+        String etag = planEtag("workout", cacheService.getCachedWorkoutPlanVersion(cachedProfile.getUserId()));
+        if (etagMatches(ifNoneMatch, etag)) {
+          return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
       }
 
-      SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanMapper.toDTO(workoutPlan);
-
-      // Cache the DTO result
-      cacheService.cacheWorkoutPlan(user.getUserId(), workoutPlanDTO);
+      User user = userLookupService.findByEmail(userRequest.getEmail())
+          .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
-      return ResponseEntity.ok(workoutPlanDTO);
+      SimpleWorkoutPlanDTO workoutPlanDTO = loadOrGenerateWorkoutPlan(user);
+      String etag = planEtag("workout",
+          CacheService.planVersion(workoutPlanDTO.getId(), workoutPlanDTO.isTemplate()));
+      if (etagMatches(ifNoneMatch, etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+      return ResponseEntity.ok().eTag(etag).body(workoutPlanDTO);
 
     } catch (Exception e) {
       log.error("Error fetching workout plan for email: {}", userRequest.getEmail(), e);
@@ -420,16 +374,15 @@ public class OptimizedFitnessController {
     log.info("Deleting plans for email: {}", userRequest.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userRequest.getEmail())
+      User user = userLookupService.findByEmailForWrite(userRequest.getEmail())
           .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
       // Invalidate all caches first
       cacheService.invalidateAllUserCache(userRequest.getEmail(), user.getUserId());
 
-      CompletableFuture<Void> deleteDiet = CompletableFuture
-          .runAsync(() -> dietPlanService.deleteUserDietPlans(user.getUserId()));
-      CompletableFuture<Void> deleteWorkout = CompletableFuture
-          .runAsync(() -> workoutPlanService.deleteUserWorkoutPlans(user.getUserId()));
+      CompletableFuture<Void> deleteDiet = runAsync(() -> dietPlanService.deleteUserDietPlans(user.getUserId()));
+      CompletableFuture<Void> deleteWorkout = runAsync(
+          () -> workoutPlanService.deleteUserWorkoutPlans(user.getUserId()));
 
       CompletableFuture.allOf(deleteDiet, deleteWorkout).join();
 
@@ -456,7 +409,7 @@ public class OptimizedFitnessController {
         return ResponseEntity.ok(cachedProfile);
       }
 
-      User user = userRepository.findByEmail(userRequest.getEmail())
+      User user = userLookupService.findByEmail(userRequest.getEmail())
           .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
       UserProfileDTO userDTO = userMapper.toDTO(user);
@@ -504,7 +457,7 @@ public class OptimizedFitnessController {
     log.info("Fetching nutrition analysis for email: {}", userRequest.getEmail());
 
     try {
-      User user = userRepository.findByEmail(userRequest.getEmail())
+      User user = userLookupService.findByEmail(userRequest.getEmail())
           .orElseThrow(() -> new RuntimeException("User not found with email: " + userRequest.getEmail()));
 
       NutritionAnalysis nutritionAnalysis = getCachedOrCalculateNutrition(user);
@@ -518,6 +471,168 @@ public class OptimizedFitnessController {
 
   // ===== HELPER METHODS =====
 
+  // Writes a pre-serialized JSON body (and its ETag) straight to the response,
+  // or a bodiless 304 when the client already has it
+  private ResponseEntity<byte[]> jsonBody(CacheService.CachedBody cachedBody, String ifNoneMatch) {
+    if (etagMatches(ifNoneMatch, cachedBody.etag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedBody.etag()).build();
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .eTag(cachedBody.etag())
+        .body(cachedBody.body());
+  }
+
+  // Strong ETag for a single plan; null when the version is unknown
+  private static String planEtag(String kind, String version) {
+    return version != null ? "\"" + kind + "-" + version + "\"" : null;
+  }
+
+  // If-None-Match may list several (possibly weak) tags or be "*"
+  private static boolean etagMatches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Loads (or generates) both plans in parallel and assembles the full response
+  private OptimizedPlansResponseDTO buildPlansResponse(User user, UserProfileDTO userDTO) {
+    CompletableFuture<SimpleDietPlanDTO> dietPlanFuture = supplyAsync(() -> {
+      try {
+        return loadOrGenerateDietPlan(user);
+      } catch (Exception e) {
+        log.error("Error processing diet plan for user: {}", user.getUserId(), e);
+        throw new RuntimeException("Error processing diet plan", e);
+      }
+    });
+
+    CompletableFuture<SimpleWorkoutPlanDTO> workoutPlanFuture = supplyAsync(() -> {
+      try {
+        return loadOrGenerateWorkoutPlan(user);
+      } catch (Exception e) {
+        log.error("Error processing workout plan for user: {}", user.getUserId(), e);
+        throw new RuntimeException("Error processing workout plan", e);
+      }
+    });
+
+    // Wait for both plans to complete
+    SimpleDietPlanDTO dietPlanDTO = dietPlanFuture.join();
+    SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanFuture.join();
+
+    // Get nutrition analysis (with caching)
+    NutritionAnalysis nutritionAnalysis = getCachedOrCalculateNutrition(user);
+
+    return plansResponse(userDTO, dietPlanDTO, workoutPlanDTO, nutritionAnalysis);
+  }
+
+  // Composes the response from the cached components (one pipelined Redis
+  // read) when all of them are present; null otherwise
+  private CacheService.CachedBody composeCachedPlansResponse(String email) {
+    CacheService.PlanComponents components = cacheService.getCachedPlanComponents(email);
+    if (components == null || !components.profile().isProfileComplete()) {
+      return null;
+    }
+
+    OptimizedPlansResponseDTO response = plansResponse(components.profile(), components.dietPlan(),
+        components.workoutPlan(), components.nutritionAnalysis());
+    return cacheService.cachePlansResponse(email, response, components.expiresAt());
+  }
+
+  private OptimizedPlansResponseDTO plansResponse(UserProfileDTO userDTO, SimpleDietPlanDTO dietPlanDTO,
+      SimpleWorkoutPlanDTO workoutPlanDTO, NutritionAnalysis nutritionAnalysis) {
+    OptimizedPlansResponseDTO response = new OptimizedPlansResponseDTO();
+    response.setUser(userDTO);
+    response.setDietPlan(dietPlanDTO);
+    response.setWorkoutPlan(workoutPlanDTO);
+    response.setNutritionAnalysis(nutritionAnalysis);
+    response.setPlansExist(true);
+    response.setSummary(generateSummary(userDTO, dietPlanDTO, workoutPlanDTO));
+    return response;
+  }
+
+  // At most one refresh per email across the cluster: checks the cached
+  // components against the database and renews or evicts them
+  private void refreshPlansResponseInBackground(String email) {
+    planRequestCoalescer.submitIfIdle("plans-response:" + email, planRefreshExecutor, () -> {
+      Optional<User> userOpt = userLookupService.findByEmail(email);
+      if (userOpt.isEmpty()) {
+        cacheService.invalidateUserCache(email);
+        return;
+      }
+      User user = userOpt.get();
+      SimpleDietPlanDTO dietPlan = dietPlanService.getExistingDietPlanDTO(user.getUserId());
+      SimpleWorkoutPlanDTO workoutPlan = workoutPlanService.getExistingWorkoutPlanDTO(user.getUserId());
+      cacheService.revalidatePlanComponents(email, userMapper.toDTO(user),
+          dietPlan != null ? CacheService.planVersion(dietPlan.getId(), dietPlan.isTemplate()) : null,
+          workoutPlan != null ? CacheService.planVersion(workoutPlan.getId(), workoutPlan.isTemplate()) : null);
+      log.debug("Revalidated plans response in background for email: {}", email);
+    });
+  }
+
+  // Plan fan-out runs on the bounded plan executor, never the common pool, and
+  // fails the request instead of hanging when a task exceeds the timeout
+  private <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+    return CompletableFuture.supplyAsync(work, planExecutor).orTimeout(planTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  private CompletableFuture<Void> runAsync(Runnable work) {
+    return CompletableFuture.runAsync(work, planExecutor).orTimeout(planTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  // Cached plan, else the stored plan, else a newly generated one. Concurrent
+  // requests for the same user share a single load/generation.
+  private SimpleDietPlanDTO loadOrGenerateDietPlan(User user) {
+    SimpleDietPlanDTO cachedPlan = cacheService.getCachedDietPlan(user.getUserId());
+    if (cachedPlan != null) {
+      log.debug("Retrieved diet plan from cache for userId: {}", user.getUserId());
+      return cachedPlan;
+    }
+
+    return planRequestCoalescer.execute("diet:" + user.getUserId(),
+        () -> dietPlanService.getExistingDietPlanDTO(user.getUserId()),
+        () -> {
+          SimpleDietPlanDTO planDTO = dietPlanService.getExistingDietPlanDTO(user.getUserId());
+          if (planDTO != null) {
+            cacheService.cacheDietPlan(user.getUserId(), planDTO);
+            return planDTO;
+          }
+          // Newly generated plans are cached by the service once committed
+          log.info("Generating new diet plan for userId: {}", user.getUserId());
+          return dietPlanService.generateDietPlanDTO(user);
+        });
+  }
+
+  private SimpleWorkoutPlanDTO loadOrGenerateWorkoutPlan(User user) {
+    SimpleWorkoutPlanDTO cachedPlan = cacheService.getCachedWorkoutPlan(user.getUserId());
+    if (cachedPlan != null) {
+      log.debug("Retrieved workout plan from cache for userId: {}", user.getUserId());
+      return cachedPlan;
+    }
+
+    return planRequestCoalescer.execute("workout:" + user.getUserId(),
+        () -> workoutPlanService.getExistingWorkoutPlanDTO(user.getUserId()),
+        () -> {
+          SimpleWorkoutPlanDTO planDTO = workoutPlanService.getExistingWorkoutPlanDTO(user.getUserId());
+          if (planDTO != null) {
+            cacheService.cacheWorkoutPlan(user.getUserId(), planDTO);
+            return planDTO;
+          }
+          // Newly generated plans are cached by the service once committed
+          log.info("Generating new workout plan for userId: {}", user.getUserId());
+          return workoutPlanService.generateWorkoutPlanDTO(user);
+        });
+  }
+
   private NutritionAnalysis getCachedOrCalculateNutrition(User user) {
     // Check cache first
     NutritionAnalysis cachedAnalysis = cacheService.getCachedNutritionAnalysis(user.getUserId());
@@ -526,8 +641,7 @@ public class OptimizedFitnessController {
     }
 
     // Calculate and cache
-    var needs = nutritionCalculatorService.calculateNutritionalNeeds(user);
-    NutritionAnalysis analysis = createNutritionAnalysis(user, needs);
+    NutritionAnalysis analysis = nutritionCalculatorService.createNutritionAnalysis(user);
     cacheService.cacheNutritionAnalysis(user.getUserId(), analysis);
 
     return analysis;
@@ -545,26 +659,6 @@ public class OptimizedFitnessController {
     user.setPreference(userProfile.getPreference());
   }
 
-  private NutritionAnalysis createNutritionAnalysis(User user, NutritionCalculatorService.NutritionalNeeds needs) {
-    NutritionAnalysis nutritionAnalysis = new NutritionAnalysis();
-    nutritionAnalysis.setUserId(user.getUserId());
-    nutritionAnalysis.setDailyCalories(roundTo1Decimal(needs.calories));
-    nutritionAnalysis.setDailyProtein(roundTo1Decimal(needs.protein));
-    nutritionAnalysis.setDailyCarbs(roundTo1Decimal(needs.carbs));
-    nutritionAnalysis.setDailyFat(roundTo1Decimal(needs.fat));
-    nutritionAnalysis.setBmr(roundTo1Decimal(calculateBMR(user)));
-    nutritionAnalysis.setTdee(roundTo1Decimal(needs.calories));
-    return nutritionAnalysis;
-  }
-
-  private double calculateBMR(User user) {
-    if ("MALE".equalsIgnoreCase(user.getGender())) {
-      return (10 * user.getWeight()) + (6.25 * user.getHeight()) - (5 * user.getAge()) + 5;
-    } else {
-      return (10 * user.getWeight()) + (6.25 * user.getHeight()) - (5 * user.getAge()) - 161;
-    }
-  }
-
   private String generateSummary(UserProfileDTO user, SimpleDietPlanDTO dietPlan, SimpleWorkoutPlanDTO workoutPlan) {
     if (dietPlan == null || workoutPlan == null) {
       return String.format("Profile for %s", user.getName());
@@ -87,6 +87,13 @@ public class RedisTestController {
     }
   }
 
+  @GetMapping("/cache-stats")
+  public ResponseEntity<Map<String, Object>> getCacheStats() {
+    Map<String, Object> response = new HashMap<>(cacheService.getCacheStats());
+    response.put("timestamp", LocalDateTime.now());
+    return ResponseEntity.ok(response);
+  }
+
   @DeleteMapping("/redis-clear")
   public ResponseEntity<Map<String, Object>> clearRedisCache() {
     Map<String, Object> response = new HashMap<>();
@@ -18,4 +18,8 @@ public class SimpleWorkoutPlanDTO {
   private String difficultyLevel;
   private LocalDate createdDate;
   private List<SimpleDayWorkoutPlanDTO> weeklyPlan;
+
+  // Served from a shared template; its id then comes from another sequence
+  // than stored plans, so versions and ETags mark it (see CacheService.planVersion)
+  private boolean template;
 }
\ No newline at end of file
@@ -2,15 +2,17 @@
 package com.gymai.plan_service.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.gymai.plan_service.util.Tenths;
 import java.util.ArrayList;
 import java.util.List;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Entity
 @Table(name = "day_meal_plans")
@@ -20,7 +22,8 @@ import java.math.RoundingMode;
 public class DayMealPlan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "day_meal_plans_seq")
+    @SequenceGenerator(name = "day_meal_plans_seq", sequenceName = "day_meal_plans_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -51,10 +54,10 @@ public class DayMealPlan {
     @Column(name = "total_daily_fat")
     private double totalDailyFat;
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
+    // Set when a meal or one of its items changes; see Meal#markTotalsDirty
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean totalsDirty = true;
 
     public DayMealPlan(int dayNumber, String dayName) {
         this.dayNumber = dayNumber;
@@ -65,49 +68,59 @@ public class DayMealPlan {
     public void addMeal(Meal meal) {
         meals.add(meal);
         meal.setDayMealPlan(this);
-        calculateDailyTotals();
+        markTotalsDirty();
     }
 
     public void removeMeal(Meal meal) {
         meals.remove(meal);
         meal.setDayMealPlan(null);
-        calculateDailyTotals();
+        markTotalsDirty();
+    }
+
+    public void setMeals(List<Meal> meals) {
+        this.meals = meals;
+        markTotalsDirty();
+    }
+
+    void markTotalsDirty() {
+        totalsDirty = true;
     }
 
     @PrePersist
     @PreUpdate
     public void calculateDailyTotals() {
-        this.totalDailyCalories = roundTo1Decimal(
-                meals.stream().mapToDouble(Meal::getTotalCalories).sum());
+        this.totalDailyCalories = Tenths.toDouble(Tenths.sum(meals, Meal::getTotalCalories));
+        this.totalDailyProtein = Tenths.toDouble(Tenths.sum(meals, Meal::getTotalProtein));
+        this.totalDailyCarbs = Tenths.toDouble(Tenths.sum(meals, Meal::getTotalCarbs));
+        this.totalDailyFat = Tenths.toDouble(Tenths.sum(meals, Meal::getTotalFat));
 
-        this.totalDailyProtein = roundTo1Decimal(
-                meals.stream().mapToDouble(Meal::getTotalProtein).sum());
-
-        this.totalDailyCarbs = roundTo1Decimal(
-                meals.stream().mapToDouble(Meal::getTotalCarbs).sum());
-
-        this.totalDailyFat = roundTo1Decimal(
-                meals.stream().mapToDouble(Meal::getTotalFat).sum());
+        totalsDirty = false;
     }
 
-    // Getters with rounding for safety
+    // Totals are stored rounded, so a clean read is a plain field read
     public double getTotalDailyCalories() {
-        calculateDailyTotals(); // Ensure fresh calculation
-        return roundTo1Decimal(totalDailyCalories);
+        ensureTotals();
+        return totalDailyCalories;
     }
 
     public double getTotalDailyProtein() {
-        calculateDailyTotals(); // Ensure fresh calculation
-        return roundTo1Decimal(totalDailyProtein);
+        ensureTotals();
+        return totalDailyProtein;
     }
 
     public double getTotalDailyCarbs() {
-        calculateDailyTotals(); // Ensure fresh calculation
-        return roundTo1Decimal(totalDailyCarbs);
+        ensureTotals();
+        return totalDailyCarbs;
     }
 
     public double getTotalDailyFat() {
-        calculateDailyTotals(); // Ensure fresh calculation
-        return roundTo1Decimal(totalDailyFat);
+        ensureTotals();
+        return totalDailyFat;
+    }
+
+    private void ensureTotals() {
+        if (totalsDirty) {
+            calculateDailyTotals();
+        }
     }
 }
\ No newline at end of file
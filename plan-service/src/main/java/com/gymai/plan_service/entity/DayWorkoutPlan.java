@@ -7,10 +7,9 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.gymai.plan_service.util.Tenths;
 import java.util.ArrayList;
 import java.util.List;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Entity
 @Table(name = "day_workout_plans")
@@ -20,7 +19,8 @@ import java.math.RoundingMode;
 public class DayWorkoutPlan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "day_workout_plans_seq")
+    @SequenceGenerator(name = "day_workout_plans_seq", sequenceName = "day_workout_plans_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -50,11 +50,6 @@ public class DayWorkoutPlan {
     @Column(name = "total_calories_burned")
     private double totalCaloriesBurned;
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
-
     public DayWorkoutPlan(int dayNumber, String dayName, String focusArea) {
         this.dayNumber = dayNumber;
         this.dayName = dayName;
@@ -96,14 +91,13 @@ public class DayWorkoutPlan {
         this.estimatedDurationMinutes = cardioMinutes + strengthMinutes;
 
         // Calculate total calories burned
-        this.totalCaloriesBurned = roundTo1Decimal(
-                exercises.stream().mapToDouble(WorkoutExercise::getCaloriesBurned).sum());
+        this.totalCaloriesBurned = Tenths.toDouble(Tenths.sum(exercises, WorkoutExercise::getCaloriesBurned));
     }
 
     // Getters with rounding for safety
     public double getTotalCaloriesBurned() {
         calculateTotals(); // Ensure fresh calculation
-        return roundTo1Decimal(totalCaloriesBurned);
+        return Tenths.round(totalCaloriesBurned);
     }
 
     public void setRestDay(boolean restDay) {
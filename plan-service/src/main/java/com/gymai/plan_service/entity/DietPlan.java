@@ -20,7 +20,9 @@ import lombok.AllArgsConstructor;
 public class DietPlan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence ids keep JDBC insert batching enabled (IDENTITY disables it)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diet_plans_seq")
+    @SequenceGenerator(name = "diet_plans_seq", sequenceName = "diet_plans_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
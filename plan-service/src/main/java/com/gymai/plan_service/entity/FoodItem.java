@@ -6,8 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonBackReference;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import com.gymai.plan_service.util.Tenths;
 
 @Entity
 @Table(name = "food_items")
@@ -17,7 +16,8 @@ import java.math.RoundingMode;
 public class FoodItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_items_seq")
+    @SequenceGenerator(name = "food_items_seq", sequenceName = "food_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -48,14 +48,9 @@ public class FoodItem {
     @Column(name = "fiber")
     private double fiber;
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
-
     public FoodItem(Food food, double quantity) {
         this.food = food;
-        this.quantity = roundTo1Decimal(quantity);
+        this.quantity = Tenths.round(quantity);
         calculateNutrition();
     }
 
@@ -65,17 +60,20 @@ public class FoodItem {
         if (food != null && quantity > 0) {
             double factor = quantity / 100.0; // Convert to per 100g factor
 
-            this.calories = roundTo1Decimal(food.getCaloriesPer100g() * factor);
-            this.protein = roundTo1Decimal(food.getProteinPer100g() * factor);
-            this.carbs = roundTo1Decimal(food.getCarbsPer100g() * factor);
-            this.fat = roundTo1Decimal(food.getFatPer100g() * factor);
-            this.fiber = roundTo1Decimal(food.getFiberPer100g() * factor);
+            this.calories = Tenths.round(food.getCaloriesPer100g() * factor);
+            this.protein = Tenths.round(food.getProteinPer100g() * factor);
+            this.carbs = Tenths.round(food.getCarbsPer100g() * factor);
+            this.fat = Tenths.round(food.getFatPer100g() * factor);
+            this.fiber = Tenths.round(food.getFiberPer100g() * factor);
+            if (meal != null) {
+                meal.markTotalsDirty();
+            }
         }
     }
 
     // Setters that trigger recalculation
     public void setQuantity(double quantity) {
-        this.quantity = roundTo1Decimal(quantity);
+        this.quantity = Tenths.round(quantity);
         calculateNutrition();
     }
 
@@ -86,26 +84,26 @@ public class FoodItem {
 
     // Getters with rounding for safety
     public double getCalories() {
-        return roundTo1Decimal(calories);
+        return Tenths.round(calories);
     }
 
     public double getProtein() {
-        return roundTo1Decimal(protein);
+        return Tenths.round(protein);
     }
 
     public double getCarbs() {
-        return roundTo1Decimal(carbs);
+        return Tenths.round(carbs);
     }
 
     public double getFat() {
-        return roundTo1Decimal(fat);
+        return Tenths.round(fat);
     }
 
     public double getFiber() {
-        return roundTo1Decimal(fiber);
+        return Tenths.round(fiber);
     }
 
     public double getQuantity() {
-        return roundTo1Decimal(quantity);
+        return Tenths.round(quantity);
     }
 }
\ No newline at end of file
@@ -2,15 +2,17 @@
 package com.gymai.plan_service.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.gymai.plan_service.util.Tenths;
 import java.util.ArrayList;
 import java.util.List;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Entity
 @Table(name = "meals")
@@ -20,7 +22,8 @@ import java.math.RoundingMode;
 public class Meal {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meals_seq")
+  @SequenceGenerator(name = "meals_seq", sequenceName = "meals_seq", allocationSize = 50)
   private Long id;
 
   @ManyToOne(fetch = FetchType.LAZY)
@@ -48,10 +51,11 @@ public class Meal {
   @Column(name = "total_fat")
   private double totalFat;
 
-  // Helper method to round to 1 decimal place
-  private double roundTo1Decimal(double value) {
-    return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-  }
+  // Set when food items change; totals are summed again on the next read only.
+  // Starts dirty so loaded meals sum their items once.
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient boolean totalsDirty = true;
 
   public Meal(String mealType) {
     this.mealType = mealType;
@@ -61,49 +65,64 @@ public class Meal {
   public void addFoodItem(FoodItem foodItem) {
     foodItems.add(foodItem);
     foodItem.setMeal(this);
-    calculateTotals();
+    markTotalsDirty();
   }
 
   public void removeFoodItem(FoodItem foodItem) {
     foodItems.remove(foodItem);
     foodItem.setMeal(null);
-    calculateTotals();
+    markTotalsDirty();
+  }
+
+  public void setFoodItems(List<FoodItem> foodItems) {
+    this.foodItems = foodItems;
+    markTotalsDirty();
+  }
+
+  // Called by the items of this meal when their nutrition changes; the day
+  // total depends on this meal, so it is invalidated too
+  void markTotalsDirty() {
+    totalsDirty = true;
+    if (dayMealPlan != null) {
+      dayMealPlan.markTotalsDirty();
+    }
   }
 
   @PrePersist
   @PreUpdate
   public void calculateTotals() {
-    this.totalCalories = roundTo1Decimal(
-        foodItems.stream().mapToDouble(FoodItem::getCalories).sum());
+    this.totalCalories = Tenths.toDouble(Tenths.sum(foodItems, FoodItem::getCalories));
+    this.totalProtein = Tenths.toDouble(Tenths.sum(foodItems, FoodItem::getProtein));
+    this.totalCarbs = Tenths.toDouble(Tenths.sum(foodItems, FoodItem::getCarbs));
+    this.totalFat = Tenths.toDouble(Tenths.sum(foodItems, FoodItem::getFat));
 
-    this.totalProtein = roundTo1Decimal(
-        foodItems.stream().mapToDouble(FoodItem::getProtein).sum());
-
-    this.totalCarbs = roundTo1Decimal(
-        foodItems.stream().mapToDouble(FoodItem::getCarbs).sum());
-
-    this.totalFat = roundTo1Decimal(
-        foodItems.stream().mapToDouble(FoodItem::getFat).sum());
+    totalsDirty = false;
   }
 
-  // Getters with rounding for safety
+  // Totals are stored rounded, so a clean read is a plain field read
   public double getTotalCalories() {
-    calculateTotals(); // Ensure fresh calculation
-    return roundTo1Decimal(totalCalories);
+    ensureTotals();
+    return totalCalories;
   }
 
   public double getTotalProtein() {
-    calculateTotals(); // Ensure fresh calculation
-    return roundTo1Decimal(totalProtein);
+    ensureTotals();
+    return totalProtein;
   }
 
   public double getTotalCarbs() {
-    calculateTotals(); // Ensure fresh calculation
-    return roundTo1Decimal(totalCarbs);
+    ensureTotals();
+    return totalCarbs;
   }
 
   public double getTotalFat() {
-    calculateTotals(); // Ensure fresh calculation
-    return roundTo1Decimal(totalFat);
+    ensureTotals();
+    return totalFat;
+  }
+
+  private void ensureTotals() {
+    if (totalsDirty) {
+      calculateTotals();
+    }
   }
 }
\ No newline at end of file
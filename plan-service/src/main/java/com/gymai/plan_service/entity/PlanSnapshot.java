@@ -0,0 +1,60 @@
+package com.gymai.plan_service.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Denormalized, read-only copy of a generated plan DTO stored as one JSON
+ * document per user, plan kind and plan version. The normalized plan tables
+ * stay the source of truth; snapshots are rewritten whenever a plan is.
+ */
+@Entity
+@Table(name = "plan_snapshots", uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "plan_kind",
+        "plan_id" }), indexes = @Index(name = "idx_plan_snapshots_user_kind", columnList = "user_id, plan_kind"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanSnapshot {
+
+    public static final String DIET = "DIET";
+    public static final String WORKOUT = "WORKOUT";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plan_snapshots_seq")
+    @SequenceGenerator(name = "plan_snapshots_seq", sequenceName = "plan_snapshots_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "plan_kind", nullable = false)
+    private String planKind; // DIET, WORKOUT
+
+    // Id of the diet/workout plan this snapshot was taken from (plan version)
+    @Column(name = "plan_id", nullable = false)
+    private Long planId;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public PlanSnapshot(Long userId, String planKind, Long planId, String payload) {
+        this.userId = userId;
+        this.planKind = planKind;
+        this.planId = planId;
+        this.payload = payload;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
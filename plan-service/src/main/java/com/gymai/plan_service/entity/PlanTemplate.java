@@ -0,0 +1,41 @@
+package com.gymai.plan_service.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Generated plan DTO shared by every user whose (quantized) generator inputs
+ * hash to the same template key. Stored once as JSON without any per-user
+ * fields and never modified; users point at it through
+ * {@link UserPlanTemplate}.
+ */
+@Entity
+@Table(name = "plan_templates", uniqueConstraints = @UniqueConstraint(columnNames = { "plan_kind",
+        "template_key" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plan_templates_seq")
+    @SequenceGenerator(name = "plan_templates_seq", sequenceName = "plan_templates_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "plan_kind", nullable = false)
+    private String planKind; // DIET, WORKOUT
+
+    // SHA-256 (hex) of the plan kind, quantized inputs and variety
+    @Column(name = "template_key", nullable = false, length = 64)
+    private String templateKey;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,56 @@
+package com.gymai.plan_service.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * A pre-generated diet or workout plan waiting in the pool for a user with a
+ * matching profile bucket. The plan itself is stored in the normal plan
+ * tables, owned by {@link #UNCLAIMED_USER_ID}; claiming it hands it to the
+ * user and removes this entry.
+ */
+@Entity
+@Table(name = "plan_pool", indexes = @Index(name = "idx_plan_pool_kind_bucket", columnList = "plan_kind, bucket"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PooledPlan {
+
+    // Owner of pooled plans until they are claimed (user ids are positive)
+    public static final long UNCLAIMED_USER_ID = -1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plan_pool_seq")
+    @SequenceGenerator(name = "plan_pool_seq", sequenceName = "plan_pool_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "plan_kind", nullable = false)
+    private String planKind; // DIET, WORKOUT
+
+    // e.g. "VEG,VEGAN|2100.0" (diet) or "MUSCLE_GAIN|INTERMEDIATE" (workout)
+    @Column(name = "bucket", nullable = false)
+    private String bucket;
+
+    @Column(name = "plan_id", nullable = false)
+    private Long planId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public PooledPlan(String planKind, String bucket, Long planId) {
+        this.planKind = planKind;
+        this.bucket = bucket;
+        this.planId = planId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
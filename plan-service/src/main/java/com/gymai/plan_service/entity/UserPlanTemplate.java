@@ -0,0 +1,62 @@
+package com.gymai.plan_service.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * A user's plan in template mode: a reference to a shared
+ * {@link PlanTemplate} plus the user's own values, kept as a JSON merge patch
+ * that is applied on top of the template when the plan is read. The id is the
+ * plan version served to clients.
+ */
+@Entity
+@Table(name = "user_plan_templates", indexes = @Index(name = "idx_user_plan_templates_user_kind", columnList = "user_id, plan_kind"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPlanTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_plan_templates_seq")
+    @SequenceGenerator(name = "user_plan_templates_seq", sequenceName = "user_plan_templates_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "plan_kind", nullable = false)
+    private String planKind; // DIET, WORKOUT
+
+    @Column(name = "template_id", nullable = false)
+    private Long templateId;
+
+    // Variety the template was drawn from; regeneration picks another one
+    @Column(name = "variety", nullable = false)
+    private int variety;
+
+    // JSON merge patch (RFC 7386) over the template payload, null if none
+    @Column(name = "overrides", columnDefinition = "text")
+    private String overrides;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public UserPlanTemplate(Long userId, String planKind, Long templateId, int variety, String overrides) {
+        this.userId = userId;
+        this.planKind = planKind;
+        this.templateId = templateId;
+        this.variety = variety;
+        this.overrides = overrides;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
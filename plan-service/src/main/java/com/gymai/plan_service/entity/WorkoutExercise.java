@@ -6,8 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonBackReference;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import com.gymai.plan_service.util.Tenths;
 
 @Entity
 @Table(name = "workout_exercises")
@@ -17,7 +16,8 @@ import java.math.RoundingMode;
 public class WorkoutExercise {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workout_exercises_seq")
+    @SequenceGenerator(name = "workout_exercises_seq", sequenceName = "workout_exercises_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -47,17 +47,12 @@ public class WorkoutExercise {
     @Column(name = "calories_burned")
     private double caloriesBurned;
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
-
     public WorkoutExercise(Exercise exercise, int sets, int reps, int durationMinutes, double weight, int restSeconds) {
         this.exercise = exercise;
         this.sets = sets;
         this.reps = reps;
         this.durationMinutes = durationMinutes;
-        this.weight = roundTo1Decimal(weight);
+        this.weight = Tenths.round(weight);
         this.restSeconds = restSeconds;
         calculateCaloriesBurned();
     }
@@ -79,7 +74,7 @@ public class WorkoutExercise {
                 burned = baseCaloriesPerSet * sets;
             }
 
-            this.caloriesBurned = roundTo1Decimal(burned);
+            this.caloriesBurned = Tenths.round(burned);
         }
     }
 
@@ -100,7 +95,7 @@ public class WorkoutExercise {
     }
 
     public void setWeight(double weight) {
-        this.weight = roundTo1Decimal(weight);
+        this.weight = Tenths.round(weight);
         calculateCaloriesBurned();
     }
 
@@ -111,10 +106,10 @@ public class WorkoutExercise {
 
     // Getters with rounding for safety
     public double getWeight() {
-        return roundTo1Decimal(weight);
+        return Tenths.round(weight);
     }
 
     public double getCaloriesBurned() {
-        return roundTo1Decimal(caloriesBurned);
+        return Tenths.round(caloriesBurned);
     }
 }
\ No newline at end of file
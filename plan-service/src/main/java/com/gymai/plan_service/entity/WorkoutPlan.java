@@ -20,7 +20,8 @@ import lombok.AllArgsConstructor;
 public class WorkoutPlan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workout_plans_seq")
+    @SequenceGenerator(name = "workout_plans_seq", sequenceName = "workout_plans_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -1,22 +1,20 @@
 
 package com.gymai.plan_service.mapper;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import jakarta.persistence.Tuple;
 import org.springframework.stereotype.Component;
 import com.gymai.plan_service.dto.*;
 import com.gymai.plan_service.entity.*;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import com.gymai.plan_service.util.Tenths;
 
 @Component
 public class DietPlanMapper {
 
-  // Helper method to round to 1 decimal place
-  private double roundTo1Decimal(double value) {
-    return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-  }
-
   public SimpleDietPlanDTO toDTO(DietPlan dietPlan) {
     if (dietPlan == null)
       return null;
@@ -24,10 +22,10 @@ public class DietPlanMapper {
     SimpleDietPlanDTO dto = new SimpleDietPlanDTO();
     dto.setId(dietPlan.getId());
     dto.setUserId(dietPlan.getUserId());
-    dto.setDailyCalorieTarget(roundTo1Decimal(dietPlan.getDailyCalorieTarget()));
-    dto.setDailyProteinTarget(roundTo1Decimal(dietPlan.getDailyProteinTarget()));
-    dto.setDailyCarbsTarget(roundTo1Decimal(dietPlan.getDailyCarbsTarget()));
-    dto.setDailyFatTarget(roundTo1Decimal(dietPlan.getDailyFatTarget()));
+    dto.setDailyCalorieTarget(Tenths.round(dietPlan.getDailyCalorieTarget()));
+    dto.setDailyProteinTarget(Tenths.round(dietPlan.getDailyProteinTarget()));
+    dto.setDailyCarbsTarget(Tenths.round(dietPlan.getDailyCarbsTarget()));
+    dto.setDailyFatTarget(Tenths.round(dietPlan.getDailyFatTarget()));
     dto.setCreatedDate(dietPlan.getCreatedDate());
 
     List<SimpleDayMealPlanDTO> dailyPlansDTO = dietPlan.getDailyPlans().stream()
@@ -38,14 +36,80 @@ public class DietPlanMapper {
     return dto;
   }
 
+  // Builds the DTO from the read-only projection rows (see
+  // DayMealPlanRepository#findFoodItemRowsByDietPlanId) with the same order,
+  // totals and rounding as toDTO, without loading any entity
+  public SimpleDietPlanDTO toDTO(Tuple plan, List<Tuple> rows) {
+    SimpleDietPlanDTO dto = new SimpleDietPlanDTO();
+    dto.setId(plan.get("id", Long.class));
+    dto.setUserId(plan.get("userId", Long.class));
+    dto.setDailyCalorieTarget(Tenths.round(plan.get("dailyCalorieTarget", Double.class)));
+    dto.setDailyProteinTarget(Tenths.round(plan.get("dailyProteinTarget", Double.class)));
+    dto.setDailyCarbsTarget(Tenths.round(plan.get("dailyCarbsTarget", Double.class)));
+    dto.setDailyFatTarget(Tenths.round(plan.get("dailyFatTarget", Double.class)));
+    dto.setCreatedDate(plan.get("createdDate", LocalDate.class));
+
+    List<SimpleDayMealPlanDTO> dailyPlans = new ArrayList<>();
+    SimpleDayMealPlanDTO day = null;
+    SimpleMealDTO meal = null;
+    Long dayId = null;
+    Long mealId = null;
+    for (Tuple row : rows) {
+      if (day == null || !Objects.equals(dayId, row.get("dayId", Long.class))) {
+        dayId = row.get("dayId", Long.class);
+        day = new SimpleDayMealPlanDTO();
+        day.setDayNumber(row.get("dayNumber", Integer.class));
+        day.setDayName(row.get("dayName", String.class));
+        day.setMeals(new ArrayList<>());
+        dailyPlans.add(day);
+        meal = null;
+      }
+
+      Long rowMealId = row.get("mealId", Long.class);
+      if (rowMealId == null) {
+        continue;
+      }
+      if (meal == null || !rowMealId.equals(mealId)) {
+        mealId = rowMealId;
+        meal = new SimpleMealDTO();
+        meal.setMealType(row.get("mealType", String.class));
+        meal.setFoodItems(new ArrayList<>());
+        day.getMeals().add(meal);
+      }
+
+      if (row.get("foodItemId", Long.class) != null) {
+        meal.getFoodItems().add(toFoodItemDTO(row));
+      }
+    }
+
+    // Same sums as Meal/DayMealPlan: children's rounded values, in tenths
+    for (SimpleDayMealPlanDTO dayPlan : dailyPlans) {
+      for (SimpleMealDTO mealDTO : dayPlan.getMeals()) {
+        List<SimpleFoodItemDTO> items = mealDTO.getFoodItems();
+        mealDTO.setTotalCalories(Tenths.toDouble(Tenths.sum(items, SimpleFoodItemDTO::getCalories)));
+        mealDTO.setTotalProtein(Tenths.toDouble(Tenths.sum(items, SimpleFoodItemDTO::getProtein)));
+        mealDTO.setTotalCarbs(Tenths.toDouble(Tenths.sum(items, SimpleFoodItemDTO::getCarbs)));
+        mealDTO.setTotalFat(Tenths.toDouble(Tenths.sum(items, SimpleFoodItemDTO::getFat)));
+      }
+      List<SimpleMealDTO> meals = dayPlan.getMeals();
+      dayPlan.setTotalDailyCalories(Tenths.toDouble(Tenths.sum(meals, SimpleMealDTO::getTotalCalories)));
+      dayPlan.setTotalDailyProtein(Tenths.toDouble(Tenths.sum(meals, SimpleMealDTO::getTotalProtein)));
+      dayPlan.setTotalDailyCarbs(Tenths.toDouble(Tenths.sum(meals, SimpleMealDTO::getTotalCarbs)));
+      dayPlan.setTotalDailyFat(Tenths.toDouble(Tenths.sum(meals, SimpleMealDTO::getTotalFat)));
+    }
+    dto.setDailyPlans(dailyPlans);
+
+    return dto;
+  }
+
   private SimpleDayMealPlanDTO toDayMealPlanDTO(DayMealPlan dayPlan) {
     SimpleDayMealPlanDTO dto = new SimpleDayMealPlanDTO();
     dto.setDayNumber(dayPlan.getDayNumber());
     dto.setDayName(dayPlan.getDayName());
-    dto.setTotalDailyCalories(roundTo1Decimal(dayPlan.getTotalDailyCalories()));
-    dto.setTotalDailyProtein(roundTo1Decimal(dayPlan.getTotalDailyProtein()));
-    dto.setTotalDailyCarbs(roundTo1Decimal(dayPlan.getTotalDailyCarbs()));
-    dto.setTotalDailyFat(roundTo1Decimal(dayPlan.getTotalDailyFat()));
+    dto.setTotalDailyCalories(Tenths.round(dayPlan.getTotalDailyCalories()));
+    dto.setTotalDailyProtein(Tenths.round(dayPlan.getTotalDailyProtein()));
+    dto.setTotalDailyCarbs(Tenths.round(dayPlan.getTotalDailyCarbs()));
+    dto.setTotalDailyFat(Tenths.round(dayPlan.getTotalDailyFat()));
 
     List<SimpleMealDTO> mealsDTO = dayPlan.getMeals().stream()
         .map(this::toMealDTO)
@@ -58,10 +122,10 @@ public class DietPlanMapper {
   private SimpleMealDTO toMealDTO(Meal meal) {
     SimpleMealDTO dto = new SimpleMealDTO();
     dto.setMealType(meal.getMealType());
-    dto.setTotalCalories(roundTo1Decimal(meal.getTotalCalories()));
-    dto.setTotalProtein(roundTo1Decimal(meal.getTotalProtein()));
-    dto.setTotalCarbs(roundTo1Decimal(meal.getTotalCarbs()));
-    dto.setTotalFat(roundTo1Decimal(meal.getTotalFat()));
+    dto.setTotalCalories(Tenths.round(meal.getTotalCalories()));
+    dto.setTotalProtein(Tenths.round(meal.getTotalProtein()));
+    dto.setTotalCarbs(Tenths.round(meal.getTotalCarbs()));
+    dto.setTotalFat(Tenths.round(meal.getTotalFat()));
 
     List<SimpleFoodItemDTO> foodItemsDTO = meal.getFoodItems().stream()
         .map(this::toFoodItemDTO)
@@ -75,12 +139,25 @@ public class DietPlanMapper {
     SimpleFoodItemDTO dto = new SimpleFoodItemDTO();
     dto.setFoodName(foodItem.getFood().getName());
     dto.setCategory(foodItem.getFood().getCategory());
-    dto.setQuantity(roundTo1Decimal(foodItem.getQuantity()));
-    dto.setCalories(roundTo1Decimal(foodItem.getCalories()));
-    dto.setProtein(roundTo1Decimal(foodItem.getProtein()));
-    dto.setCarbs(roundTo1Decimal(foodItem.getCarbs()));
-    dto.setFat(roundTo1Decimal(foodItem.getFat()));
-    dto.setFiber(roundTo1Decimal(foodItem.getFiber()));
+    dto.setQuantity(Tenths.round(foodItem.getQuantity()));
+    dto.setCalories(Tenths.round(foodItem.getCalories()));
+    dto.setProtein(Tenths.round(foodItem.getProtein()));
+    dto.setCarbs(Tenths.round(foodItem.getCarbs()));
+    dto.setFat(Tenths.round(foodItem.getFat()));
+    dto.setFiber(Tenths.round(foodItem.getFiber()));
+    return dto;
+  }
+
+  private SimpleFoodItemDTO toFoodItemDTO(Tuple row) {
+    SimpleFoodItemDTO dto = new SimpleFoodItemDTO();
+    dto.setFoodName(row.get("foodName", String.class));
+    dto.setCategory(row.get("category", String.class));
+    dto.setQuantity(Tenths.round(row.get("quantity", Double.class)));
+    dto.setCalories(Tenths.round(row.get("calories", Double.class)));
+    dto.setProtein(Tenths.round(row.get("protein", Double.class)));
+    dto.setCarbs(Tenths.round(row.get("carbs", Double.class)));
+    dto.setFat(Tenths.round(row.get("fat", Double.class)));
+    dto.setFiber(Tenths.round(row.get("fiber", Double.class)));
     return dto;
   }
 }
\ No newline at end of file
@@ -1,21 +1,19 @@
 package com.gymai.plan_service.mapper;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import jakarta.persistence.Tuple;
 import org.springframework.stereotype.Component;
 import com.gymai.plan_service.dto.*;
 import com.gymai.plan_service.entity.*;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import com.gymai.plan_service.util.Tenths;
 
 @Component
 public class WorkoutPlanMapper {
 
-  // Helper method to round to 1 decimal place
-  private double roundTo1Decimal(double value) {
-    return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-  }
-
   public SimpleWorkoutPlanDTO toDTO(WorkoutPlan workoutPlan) {
     if (workoutPlan == null)
       return null;
@@ -35,6 +33,48 @@ public class WorkoutPlanMapper {
     return dto;
   }
 
+  // Builds the DTO from the read-only projection rows (see
+  // DayWorkoutPlanRepository#findExerciseRowsByWorkoutPlanId) with the same
+  // order, totals and rounding as toDTO, without loading any entity
+  public SimpleWorkoutPlanDTO toDTO(Tuple plan, List<Tuple> rows) {
+    SimpleWorkoutPlanDTO dto = new SimpleWorkoutPlanDTO();
+    dto.setId(plan.get("id", Long.class));
+    dto.setUserId(plan.get("userId", Long.class));
+    dto.setPlanType(plan.get("planType", String.class));
+    dto.setDifficultyLevel(plan.get("difficultyLevel", String.class));
+    dto.setCreatedDate(plan.get("createdDate", LocalDate.class));
+
+    List<SimpleDayWorkoutPlanDTO> weeklyPlan = new ArrayList<>();
+    SimpleDayWorkoutPlanDTO day = null;
+    Long dayId = null;
+    for (Tuple row : rows) {
+      if (day == null || !Objects.equals(dayId, row.get("dayId", Long.class))) {
+        dayId = row.get("dayId", Long.class);
+        day = new SimpleDayWorkoutPlanDTO();
+        day.setDayNumber(row.get("dayNumber", Integer.class));
+        day.setDayName(row.get("dayName", String.class));
+        day.setFocusArea(row.get("focusArea", String.class));
+        day.setRestDay(row.get("restDay", Boolean.class));
+        day.setEstimatedDurationMinutes(row.get("estimatedDurationMinutes", Integer.class));
+        day.setExercises(new ArrayList<>());
+        weeklyPlan.add(day);
+      }
+
+      if (row.get("workoutExerciseId", Long.class) != null) {
+        day.getExercises().add(toWorkoutExerciseDTO(row));
+      }
+    }
+
+    // Same sum as DayWorkoutPlan: rounded exercise calories, in tenths
+    for (SimpleDayWorkoutPlanDTO dayPlan : weeklyPlan) {
+      dayPlan.setTotalCaloriesBurned(dayPlan.isRestDay() ? 0.0
+          : Tenths.toDouble(Tenths.sum(dayPlan.getExercises(), SimpleWorkoutExerciseDTO::getCaloriesBurned)));
+    }
+    dto.setWeeklyPlan(weeklyPlan);
+
+    return dto;
+  }
+
   private SimpleDayWorkoutPlanDTO toDayWorkoutPlanDTO(DayWorkoutPlan dayPlan) {
     SimpleDayWorkoutPlanDTO dto = new SimpleDayWorkoutPlanDTO();
     dto.setDayNumber(dayPlan.getDayNumber());
@@ -42,7 +82,7 @@ public class WorkoutPlanMapper {
     dto.setFocusArea(dayPlan.getFocusArea());
     dto.setRestDay(dayPlan.isRestDay());
     dto.setEstimatedDurationMinutes(dayPlan.getEstimatedDurationMinutes());
-    dto.setTotalCaloriesBurned(roundTo1Decimal(dayPlan.getTotalCaloriesBurned()));
+    dto.setTotalCaloriesBurned(Tenths.round(dayPlan.getTotalCaloriesBurned()));
 
     List<SimpleWorkoutExerciseDTO> exercisesDTO = dayPlan.getExercises().stream()
         .map(this::toWorkoutExerciseDTO)
@@ -70,4 +110,24 @@ public class WorkoutPlanMapper {
     dto.setCaloriesBurnedPerMinute(workoutExercise.getExercise().getCaloriesBurnedPerMinute());
     return dto;
   }
+
+  private SimpleWorkoutExerciseDTO toWorkoutExerciseDTO(Tuple row) {
+    SimpleWorkoutExerciseDTO dto = new SimpleWorkoutExerciseDTO();
+    dto.setExerciseName(row.get("exerciseName", String.class));
+    dto.setCategory(row.get("category", String.class));
+    dto.setMuscleGroup(row.get("muscleGroup", String.class));
+    dto.setEquipment(row.get("equipment", String.class));
+    dto.setDifficulty(row.get("difficulty", String.class));
+    dto.setDescription(row.get("description", String.class));
+    dto.setInstructions(row.get("instructions", String.class));
+    dto.setSets(row.get("sets", Integer.class));
+    dto.setReps(row.get("reps", Integer.class));
+    dto.setDurationMinutes(row.get("durationMinutes", Integer.class));
+    dto.setWeight(Tenths.round(row.get("weight", Double.class)));
+    dto.setRestSeconds(row.get("restSeconds", Integer.class));
+    dto.setCaloriesBurned(Tenths.round(row.get("caloriesBurned", Double.class)));
+    Double perMinute = row.get("caloriesBurnedPerMinute", Double.class);
+    dto.setCaloriesBurnedPerMinute(perMinute != null ? perMinute : 0.0);
+    return dto;
+  }
 }
\ No newline at end of file
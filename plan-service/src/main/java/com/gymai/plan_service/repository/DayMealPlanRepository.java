@@ -2,11 +2,33 @@
 package com.gymai.plan_service.repository;
 
 import java.util.List;
+import jakarta.persistence.Tuple;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.gymai.plan_service.entity.DayMealPlan;
 
 @Repository
 public interface DayMealPlanRepository extends JpaRepository<DayMealPlan, Long> {
     List<DayMealPlan> findByDietPlanId(Long dietPlanId);
+
+    // All days of a plan with their meals in one query
+    @Query("SELECT d FROM DayMealPlan d LEFT JOIN FETCH d.meals m WHERE d.dietPlan.id = :dietPlanId ORDER BY d.dayNumber, m.mealType")
+    List<DayMealPlan> findWithMealsByDietPlanId(@Param("dietPlanId") Long dietPlanId);
+
+    // One row per food item of the plan (days and meals without children still
+    // get a row), in the order the entity read path walks them
+    @Query("SELECT d.id AS dayId, d.dayNumber AS dayNumber, d.dayName AS dayName, m.id AS mealId, "
+            + "m.mealType AS mealType, fi.id AS foodItemId, f.name AS foodName, f.category AS category, "
+            + "fi.quantity AS quantity, fi.calories AS calories, fi.protein AS protein, fi.carbs AS carbs, "
+            + "fi.fat AS fat, fi.fiber AS fiber "
+            + "FROM DayMealPlan d LEFT JOIN d.meals m LEFT JOIN m.foodItems fi LEFT JOIN fi.food f "
+            + "WHERE d.dietPlan.id = :dietPlanId ORDER BY d.dayNumber, d.id, m.mealType, m.id, fi.id")
+    List<Tuple> findFoodItemRowsByDietPlanId(@Param("dietPlanId") Long dietPlanId);
+
+    @Modifying
+    @Query("DELETE FROM DayMealPlan d WHERE d.dietPlan.id IN (SELECT dp.id FROM DietPlan dp WHERE dp.userId = :userId)")
+    int deleteByDietPlanUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
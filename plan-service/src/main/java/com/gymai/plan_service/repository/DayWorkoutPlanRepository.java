@@ -2,11 +2,36 @@
 package com.gymai.plan_service.repository;
 
 import java.util.List;
+import jakarta.persistence.Tuple;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.gymai.plan_service.entity.DayWorkoutPlan;
 
 @Repository
 public interface DayWorkoutPlanRepository extends JpaRepository<DayWorkoutPlan, Long> {
     List<DayWorkoutPlan> findByWorkoutPlanId(Long workoutPlanId);
+
+    // All days of a plan with their exercises in one query
+    @Query("SELECT d FROM DayWorkoutPlan d LEFT JOIN FETCH d.exercises we LEFT JOIN FETCH we.exercise WHERE d.workoutPlan.id = :workoutPlanId ORDER BY d.dayNumber, we.id")
+    List<DayWorkoutPlan> findWithExercisesByWorkoutPlanId(@Param("workoutPlanId") Long workoutPlanId);
+
+    // One row per exercise of the plan (rest days still get a row), in the
+    // order the entity read path walks them
+    @Query("SELECT d.id AS dayId, d.dayNumber AS dayNumber, d.dayName AS dayName, d.focusArea AS focusArea, "
+            + "d.restDay AS restDay, d.estimatedDurationMinutes AS estimatedDurationMinutes, "
+            + "we.id AS workoutExerciseId, e.name AS exerciseName, e.category AS category, "
+            + "e.muscleGroup AS muscleGroup, e.equipment AS equipment, e.difficulty AS difficulty, "
+            + "e.description AS description, e.instructions AS instructions, we.sets AS sets, we.reps AS reps, "
+            + "we.durationMinutes AS durationMinutes, we.weight AS weight, we.restSeconds AS restSeconds, "
+            + "we.caloriesBurned AS caloriesBurned, e.caloriesBurnedPerMinute AS caloriesBurnedPerMinute "
+            + "FROM DayWorkoutPlan d LEFT JOIN d.exercises we LEFT JOIN we.exercise e "
+            + "WHERE d.workoutPlan.id = :workoutPlanId ORDER BY d.dayNumber, d.id, we.id")
+    List<Tuple> findExerciseRowsByWorkoutPlanId(@Param("workoutPlanId") Long workoutPlanId);
+
+    @Modifying
+    @Query("DELETE FROM DayWorkoutPlan d WHERE d.workoutPlan.id IN (SELECT wp.id FROM WorkoutPlan wp WHERE wp.userId = :userId)")
+    int deleteByWorkoutPlanUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ package com.gymai.plan_service.repository;
 
 import java.util.Optional;
 import java.util.List;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.Modifying;
@@ -26,5 +28,24 @@ public interface DietPlanRepository extends JpaRepository<DietPlan, Long> {
         return plans.isEmpty() ? Optional.empty() : Optional.of(plans.get(0));
     }
 
+    // Plans with their days fetched in the same query (newest plan first)
+    @Query("SELECT dp FROM DietPlan dp LEFT JOIN FETCH dp.dailyPlans d WHERE dp.userId = :userId ORDER BY dp.createdDate DESC, d.dayNumber")
+    List<DietPlan> findWithDailyPlansByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT dp FROM DietPlan dp LEFT JOIN FETCH dp.dailyPlans d WHERE dp.id = :id ORDER BY d.dayNumber")
+    Optional<DietPlan> findWithDailyPlansById(@Param("id") Long id);
+
+    // Scalar header of the newest plan for the DTO read path (no managed entity)
+    @Query("SELECT dp.id AS id, dp.userId AS userId, dp.dailyCalorieTarget AS dailyCalorieTarget, "
+            + "dp.dailyProteinTarget AS dailyProteinTarget, dp.dailyCarbsTarget AS dailyCarbsTarget, "
+            + "dp.dailyFatTarget AS dailyFatTarget, dp.createdDate AS createdDate "
+            + "FROM DietPlan dp WHERE dp.userId = :userId ORDER BY dp.createdDate DESC")
+    List<Tuple> findPlanRowsByUserId(@Param("userId") Long userId, Pageable pageable);
+
     boolean existsByUserId(Long userId);
+
+    // Last step of bulk plan deletion; children must already be gone
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM DietPlan dp WHERE dp.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
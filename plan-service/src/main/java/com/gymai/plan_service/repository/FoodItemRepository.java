@@ -3,10 +3,18 @@ package com.gymai.plan_service.repository;
 
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.gymai.plan_service.entity.FoodItem;
 
 @Repository
 public interface FoodItemRepository extends JpaRepository<FoodItem, Long> {
     List<FoodItem> findByMealId(Long mealId);
+
+    // Bulk delete of every food item in a user's diet plans (first step of plan deletion)
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM FoodItem fi WHERE fi.meal.id IN (SELECT m.id FROM Meal m WHERE m.dayMealPlan.dietPlan.userId = :userId)")
+    int deleteByDietPlanUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
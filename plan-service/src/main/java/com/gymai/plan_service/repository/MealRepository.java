@@ -4,10 +4,21 @@ package com.gymai.plan_service.repository;
 
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.gymai.plan_service.entity.Meal;
 
 @Repository
 public interface MealRepository extends JpaRepository<Meal, Long> {
     List<Meal> findByDayMealPlanId(Long dayMealPlanId);
+
+    // All meals of a plan with their food items (and foods) in one query
+    @Query("SELECT m FROM Meal m LEFT JOIN FETCH m.foodItems fi LEFT JOIN FETCH fi.food WHERE m.dayMealPlan.dietPlan.id = :dietPlanId ORDER BY fi.id")
+    List<Meal> findWithFoodItemsByDietPlanId(@Param("dietPlanId") Long dietPlanId);
+
+    @Modifying
+    @Query("DELETE FROM Meal m WHERE m.dayMealPlan.id IN (SELECT d.id FROM DayMealPlan d WHERE d.dietPlan.userId = :userId)")
+    int deleteByDietPlanUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+// PlanSnapshotRepository.java
+package com.gymai.plan_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.gymai.plan_service.entity.PlanSnapshot;
+
+@Repository
+public interface PlanSnapshotRepository extends JpaRepository<PlanSnapshot, Long> {
+
+    // Scalar projection: returns the stored document without hydrating an entity
+    @Query("SELECT s.payload FROM PlanSnapshot s WHERE s.userId = :userId AND s.planKind = :planKind ORDER BY s.planId DESC")
+    List<String> findPayloads(@Param("userId") Long userId, @Param("planKind") String planKind, Pageable pageable);
+
+    default Optional<String> findLatestPayload(Long userId, String planKind) {
+        List<String> payloads = findPayloads(userId, planKind, PageRequest.of(0, 1));
+        return payloads.isEmpty() ? Optional.empty() : Optional.of(payloads.get(0));
+    }
+
+    // Users by their most recently written plan, newest first (cache warm-up)
+    @Query("SELECT s.userId FROM PlanSnapshot s WHERE s.createdAt >= :since GROUP BY s.userId ORDER BY MAX(s.createdAt) DESC")
+    List<Long> findRecentUserIds(@Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("SELECT COUNT(DISTINCT s.userId) FROM PlanSnapshot s WHERE s.createdAt >= :since")
+    long countRecentUsers(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM PlanSnapshot s WHERE s.userId = :userId AND s.planKind = :planKind")
+    int deleteByUserIdAndPlanKind(@Param("userId") Long userId, @Param("planKind") String planKind);
+
+    @Modifying
+    @Query("DELETE FROM PlanSnapshot s WHERE s.userId = :userId AND s.planKind = :planKind AND s.planId <> :planId")
+    int deleteOtherVersions(@Param("userId") Long userId, @Param("planKind") String planKind,
+            @Param("planId") Long planId);
+
+    // Concurrent writers of the same plan version (e.g. two cold reads
+    // backfilling it) both succeed; the second insert is a no-op
+    @Modifying
+    @Query(value = "INSERT INTO plan_snapshots (id, user_id, plan_kind, plan_id, payload, created_at) "
+            + "VALUES (nextval('plan_snapshots_seq'), :userId, :planKind, :planId, :payload, now()) "
+            + "ON CONFLICT (user_id, plan_kind, plan_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("planKind") String planKind,
+            @Param("planId") Long planId, @Param("payload") String payload);
+}
@@ -0,0 +1,28 @@
+package com.gymai.plan_service.repository;
+
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.gymai.plan_service.entity.PlanTemplate;
+
+@Repository
+public interface PlanTemplateRepository extends JpaRepository<PlanTemplate, Long> {
+
+    @Query("SELECT t.id FROM PlanTemplate t WHERE t.planKind = :planKind AND t.templateKey = :templateKey")
+    Optional<Long> findIdByKey(@Param("planKind") String planKind, @Param("templateKey") String templateKey);
+
+    @Query("SELECT t.payload FROM PlanTemplate t WHERE t.id = :id")
+    Optional<String> findPayloadById(@Param("id") Long id);
+
+    // Users with the same inputs may generate the same template concurrently;
+    // whichever commits first wins and the others reuse it
+    @Modifying
+    @Query(value = "INSERT INTO plan_templates (id, plan_kind, template_key, payload, created_at) "
+            + "VALUES (nextval('plan_templates_seq'), :planKind, :templateKey, :payload, now()) "
+            + "ON CONFLICT (plan_kind, template_key) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("planKind") String planKind, @Param("templateKey") String templateKey,
+            @Param("payload") String payload);
+}
@@ -0,0 +1,35 @@
+package com.gymai.plan_service.repository;
+
+import java.util.List;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.gymai.plan_service.entity.PooledPlan;
+
+@Repository
+public interface PooledPlanRepository extends JpaRepository<PooledPlan, Long> {
+
+    // Oldest entries of a bucket, row-locked until the claiming transaction
+    // ends; lock timeout -2 is Hibernate's SKIP LOCKED, so concurrent claims
+    // take different entries instead of waiting on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT p FROM PooledPlan p WHERE p.planKind = :planKind AND p.bucket = :bucket ORDER BY p.id")
+    List<PooledPlan> findClaimable(@Param("planKind") String planKind, @Param("bucket") String bucket,
+            Pageable pageable);
+
+    long countByPlanKindAndBucket(String planKind, String bucket);
+
+    long countByPlanKind(String planKind);
+
+    @Modifying
+    @Query("DELETE FROM PooledPlan p WHERE p.id = :id")
+    int deleteClaimed(@Param("id") Long id);
+}
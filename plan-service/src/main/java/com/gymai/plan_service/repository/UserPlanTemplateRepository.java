@@ -0,0 +1,29 @@
+package com.gymai.plan_service.repository;
+
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.gymai.plan_service.entity.UserPlanTemplate;
+
+@Repository
+public interface UserPlanTemplateRepository extends JpaRepository<UserPlanTemplate, Long> {
+
+    @Query("SELECT r FROM UserPlanTemplate r WHERE r.userId = :userId AND r.planKind = :planKind ORDER BY r.id DESC")
+    List<UserPlanTemplate> findByUserIdAndPlanKind(@Param("userId") Long userId, @Param("planKind") String planKind,
+            Pageable pageable);
+
+    default Optional<UserPlanTemplate> findLatest(Long userId, String planKind) {
+        List<UserPlanTemplate> references = findByUserIdAndPlanKind(userId, planKind, PageRequest.of(0, 1));
+        return references.isEmpty() ? Optional.empty() : Optional.of(references.get(0));
+    }
+
+    @Modifying
+    @Query("DELETE FROM UserPlanTemplate r WHERE r.userId = :userId AND r.planKind = :planKind")
+    int deleteByUserIdAndPlanKind(@Param("userId") Long userId, @Param("planKind") String planKind);
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.gymai.plan_service.entity.User;
@@ -22,5 +23,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    // Only the column, for building the known-email filter
+    @Query("SELECT u.email FROM User u")
+    List<String> findAllEmails();
+
     Optional<User> findByUserId(Long userId);
 }
\ No newline at end of file
@@ -3,10 +3,18 @@ package com.gymai.plan_service.repository;
 
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.gymai.plan_service.entity.WorkoutExercise;
 
 @Repository
 public interface WorkoutExerciseRepository extends JpaRepository<WorkoutExercise, Long> {
     List<WorkoutExercise> findByDayWorkoutPlanId(Long dayWorkoutPlanId);
+
+    // Bulk delete of every exercise in a user's workout plans (first step of plan deletion)
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM WorkoutExercise we WHERE we.dayWorkoutPlan.id IN (SELECT d.id FROM DayWorkoutPlan d WHERE d.workoutPlan.userId = :userId)")
+    int deleteByWorkoutPlanUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
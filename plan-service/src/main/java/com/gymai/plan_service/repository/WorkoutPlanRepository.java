@@ -1,8 +1,11 @@
 // WorkoutPlanRepository.java - Fixed for your entities  
 package com.gymai.plan_service.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.Modifying;
@@ -25,6 +28,26 @@ public interface WorkoutPlanRepository extends JpaRepository<WorkoutPlan, Long>
         return plans.isEmpty() ? Optional.empty() : Optional.of(plans.get(0));
     }
 
+    // Plans with their days fetched in the same query (newest plan first)
+    @Query("SELECT wp FROM WorkoutPlan wp LEFT JOIN FETCH wp.weeklyPlan d WHERE wp.userId = :userId ORDER BY wp.createdDate DESC, d.dayNumber")
+    List<WorkoutPlan> findWithWeeklyPlanByUserId(@Param("userId") Long userId);
+
+    // Scalar header of the newest plan for the DTO read path (no managed entity)
+    @Query("SELECT wp.id AS id, wp.userId AS userId, wp.planType AS planType, "
+            + "wp.difficultyLevel AS difficultyLevel, wp.createdDate AS createdDate "
+            + "FROM WorkoutPlan wp WHERE wp.userId = :userId ORDER BY wp.createdDate DESC")
+    List<Tuple> findPlanRowsByUserId(@Param("userId") Long userId, Pageable pageable);
+
     boolean existsByUserId(Long userId);
 
+    // Last step of bulk plan deletion; children must already be gone
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM WorkoutPlan wp WHERE wp.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    // Hands a pooled plan to its user; the plan content stays as generated
+    @Modifying
+    @Query("UPDATE WorkoutPlan wp SET wp.userId = :userId, wp.createdDate = :createdDate WHERE wp.id = :id")
+    int assignToUser(@Param("id") Long id, @Param("userId") Long userId, @Param("createdDate") LocalDate createdDate);
+
 }
@@ -0,0 +1,147 @@
+package com.gymai.plan_service.service;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per key family meters for {@link CacheService}: request outcomes per tier,
+ * Redis latency, payload sizes, and L1 evictions and invalidations. Every
+ * meter is tagged {@code family} (the key prefix without the trailing colon,
+ * e.g. {@code diet:plan}) so TTLs and memory can be sized per entry type.
+ */
+class CacheFamilyMetrics {
+
+  private static final String OTHER = "other";
+
+  private final MeterRegistry registry;
+  private final List<String> families;
+  private final Map<String, Family> meters = new ConcurrentHashMap<>();
+
+  CacheFamilyMetrics(MeterRegistry registry, List<String> families) {
+    this.registry = registry;
+    this.families = families;
+  }
+
+  // "g3:c1:diet:plan:42" -> "diet:plan"
+  String familyOf(String key) {
+    for (String family : families) {
+      if (key.contains(family)) {
+        return family.substring(0, family.length() - 1);
+      }
+    }
+    return OTHER;
+  }
+
+  void l1Hit(String key) {
+    family(key).l1Hits.increment();
+  }
+
+  void l2Hit(String key, int bytes, long nanos) {
+    Family family = family(key);
+    family.l2Hits.increment();
+    family.readBytes.record(bytes);
+    family.getLatency.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void miss(String key, long nanos) {
+    Family family = family(key);
+    family.misses.increment();
+    family.getLatency.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void error(String key) {
+    family(key).errors.increment();
+  }
+
+  // Not sent to Redis because the circuit breaker is open
+  void skipped(String key) {
+    family(key).skips.increment();
+  }
+
+  void write(String key, int bytes, long nanos) {
+    Family family = family(key);
+    family.writeBytes.record(bytes);
+    family.setLatency.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void invalidated(String key) {
+    family(key).invalidations.increment();
+  }
+
+  void evicted(String key, RemovalCause cause) {
+    family(key).evictions.get(cause).increment();
+  }
+
+  private Family family(String key) {
+    return meters.computeIfAbsent(familyOf(key), Family::new);
+  }
+
+  private final class Family {
+    final Counter l1Hits;
+    final Counter l2Hits;
+    final Counter misses;
+    final Counter errors;
+    final Counter skips;
+    final Counter invalidations;
+    final Map<RemovalCause, Counter> evictions = new EnumMap<>(RemovalCause.class);
+    final Timer getLatency;
+    final Timer setLatency;
+    final DistributionSummary readBytes;
+    final DistributionSummary writeBytes;
+
+    Family(String name) {
+      l1Hits = requests(name, "l1-hit");
+      l2Hits = requests(name, "l2-hit");
+      misses = requests(name, "miss");
+      errors = requests(name, "error");
+      skips = requests(name, "skipped");
+      invalidations = Counter.builder("cache.family.invalidations")
+          .description("Entries deleted by explicit invalidation")
+          .tag("family", name)
+          .register(registry);
+      getLatency = latency(name, "get");
+      setLatency = latency(name, "set");
+      readBytes = payload(name, "read");
+      writeBytes = payload(name, "write");
+      for (RemovalCause cause : RemovalCause.values()) {
+        evictions.put(cause, Counter.builder("cache.family.evictions")
+            .description("L1 entries dropped for size or expiry")
+            .tags("family", name, "cause", cause.name().toLowerCase(Locale.ROOT))
+            .register(registry));
+      }
+    }
+
+    private Counter requests(String name, String result) {
+      return Counter.builder("cache.family.requests")
+          .description("Cache lookups by outcome")
+          .tags("family", name, "result", result)
+          .register(registry);
+    }
+
+    private Timer latency(String name, String operation) {
+      return Timer.builder("cache.family.redis.latency")
+          .description("Redis round trip for cache reads and writes")
+          .tags("family", name, "operation", operation)
+          .publishPercentiles(0.5, 0.99)
+          .register(registry);
+    }
+
+    private DistributionSummary payload(String name, String operation) {
+      return DistributionSummary.builder("cache.family.payload")
+          .description("Encoded cache entry size")
+          .baseUnit("bytes")
+          .tags("family", name, "operation", operation)
+          .register(registry);
+    }
+  }
+}
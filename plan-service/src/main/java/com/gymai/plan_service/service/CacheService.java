@@ -1,83 +1,483 @@
 package com.gymai.plan_service.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.gymai.plan_service.dto.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 @Service
 @Slf4j
 public class CacheService {
 
+  // Pub/sub channel telling every replica which keys to drop from its L1
+  public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+  private static final String INVALIDATE_ALL = "*";
+
+  // Redis, or the off-heap store on single-node installs; absent when caching is off
+  @Autowired(required = false)
+  private CacheStore cacheStore;
+
   @Autowired(required = false)
-  private RedisTemplate<String, Object> redisTemplate;
+  private CacheValueCodec cacheValueCodec;
 
-  @Value("${cache.redis.enabled:false}")
-  private boolean cacheEnabled;
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private RedisCircuitBreaker circuitBreaker;
+
+  // Same mapper Spring MVC writes responses with
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${cache.l1.max-size:10000}")
+  private long l1MaxSize;
+
+  @Value("${cache.l1.ttl-seconds:60}")
+  private long l1TtlSeconds;
+
+  // Memory for composed plans response bodies, which outlive the L1 TTL
+  @Value("${cache.plans-body.max-size-mb:64}")
+  private long plansBodyMaxSizeMb;
+
+  // How long a health check result is reused before Redis is pinged again
+  @Value("${cache.redis.health-cache-ms:5000}")
+  private long healthCacheMs;
+
+  // A composed plans response is stale (served, but revalidated in the
+  // background) once one of its components has less than this left to live
+  @Value("${cache.refresh-ahead.stale-seconds:1800}")
+  private long staleSeconds;
+
+  // Frequently read entries are refreshed this long before going stale
+  @Value("${cache.refresh-ahead.window-seconds:300}")
+  private long refreshAheadWindowSeconds;
+
+  @Value("${cache.refresh-ahead.min-hits:5}")
+  private long refreshAheadMinHits;
+
+  // In-process L1 in front of the CacheStore (L2). Entries hold deserialized
+  // DTOs and live briefly; invalidations reach other replicas over pub/sub.
+  private Cache<String, Object> localCache;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final LongAdder l2Hits = new LongAdder();
+  private final LongAdder l2Misses = new LongAdder();
+
+  private volatile boolean lastHealthy;
+  private volatile long lastHealthCheckAt;
+
+  // Composed plans response bodies. Kept until the first of the components
+  // they were built from expires in Redis, not for the L1 TTL, so repeat
+  // reads on any replica skip the component reads and Jackson; dropped by
+  // the same invalidations (local and pub/sub) as the L1.
+  private Cache<String, CachedBody> plansBodies;
+
+  // Recent hit counts per plans-response key, for refresh-ahead decisions
+  private Cache<String, LongAdder> plansResponseHits;
+
+  private CacheFamilyMetrics familyMetrics;
+
+  // Namespace generations, read from Redis and kept as long as L1 entries.
+  // Every cache key embeds them, so bumping one (INCR) orphans a whole family
+  // of keys at once; the orphans simply age out through their TTL.
+  private Cache<String, Long> generations;
+  // Last generation seen per counter, used while Redis is unreachable so L1
+  // entries stay addressable
+  private final Map<String, Long> lastKnownGenerations = new ConcurrentHashMap<>();
+  private static final String GENERATION_KEY = "cache:generation";
+  // Keys and generation counters whose invalidation could not reach the
+  // store; they may still be there, so the deletes are replayed once it
+  // answers again. Past MAX_DROPPED_INVALIDATIONS, or when the circuit opened
+  // meanwhile (a real outage, possibly a failover to a replica that missed
+  // earlier deletes), the whole namespace is retired instead.
+  private static final int MAX_DROPPED_INVALIDATIONS = 10_000;
+  private final Set<String> droppedKeys = ConcurrentHashMap.newKeySet();
+  private final Set<String> droppedCounters = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean droppedOverflow = new AtomicBoolean();
+  private final AtomicLong firstDroppedAt = new AtomicLong();
 
   // Cache Keys
   private static final String USER_PROFILE_KEY = "user:profile:";
   private static final String DIET_PLAN_KEY = "diet:plan:";
   private static final String WORKOUT_PLAN_KEY = "workout:plan:";
   private static final String NUTRITION_ANALYSIS_KEY = "nutrition:analysis:";
-  private static final String PLANS_RESPONSE_KEY = "plans:response:";
-  private static final String FOODS_BY_PREFERENCE_KEY = "foods:preference:";
-  private static final String EXERCISES_BY_FOCUS_KEY = "exercises:focus:";
+  // Local only: the composed response is never written to Redis
+  private static final String PLANS_RESPONSE_KEY = "plans:response:body:";
+  // Small metadata entries that answer conditional requests without the plan
+  private static final String DIET_VERSION_KEY = "diet:version:";
+  private static final String WORKOUT_VERSION_KEY = "workout:version:";
 
   // TTL in seconds
   private static final long USER_PROFILE_TTL = 3600;
   private static final long DIET_PLAN_TTL = 86400;
   private static final long WORKOUT_PLAN_TTL = 86400;
   private static final long NUTRITION_ANALYSIS_TTL = 3600;
-  private static final long PLANS_RESPONSE_TTL = 7200;
-  private static final long FOODS_BY_PREFERENCE_TTL = 21600;
-  private static final long EXERCISES_BY_FOCUS_TTL = 21600;
+
+  @PostConstruct
+  void initLocalCache() {
+    familyMetrics = new CacheFamilyMetrics(meterRegistry != null ? meterRegistry : Metrics.globalRegistry,
+        List.of(USER_PROFILE_KEY, DIET_PLAN_KEY, WORKOUT_PLAN_KEY, NUTRITION_ANALYSIS_KEY, PLANS_RESPONSE_KEY,
+            DIET_VERSION_KEY, WORKOUT_VERSION_KEY));
+    localCache = Caffeine.newBuilder()
+        .maximumSize(l1MaxSize)
+        .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+        .evictionListener((String key, Object value, RemovalCause cause) -> familyMetrics.evicted(key, cause))
+        .recordStats()
+        .build();
+    generations = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+        .build();
+    plansBodies = Caffeine.newBuilder()
+        .maximumWeight(plansBodyMaxSizeMb * 1024 * 1024)
+        .weigher((String key, CachedBody body) -> body.body().length)
+        .expireAfter(Expiry.writing((String key, CachedBody body) ->
+            Duration.ofMillis(Math.max(0, body.expiresAt() - System.currentTimeMillis()))))
+        .evictionListener((String key, CachedBody body, RemovalCause cause) -> familyMetrics.evicted(key, cause))
+        .recordStats()
+        .build();
+    plansResponseHits = Caffeine.newBuilder()
+        .maximumSize(l1MaxSize)
+        .expireAfterWrite(Duration.ofSeconds(staleSeconds))
+        .build();
+    circuitBreaker.onRecovery(this::replayDroppedInvalidations);
+
+    if (meterRegistry != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, localCache, "plan-cache-l1");
+      CaffeineCacheMetrics.monitor(meterRegistry, plansBodies, "plan-cache-bodies");
+      FunctionCounter.builder("cache.gets", l2Hits, LongAdder::doubleValue)
+          .tags("cache", "plan-cache-l2", "result", "hit")
+          .register(meterRegistry);
+      FunctionCounter.builder("cache.gets", l2Misses, LongAdder::doubleValue)
+          .tags("cache", "plan-cache-l2", "result", "miss")
+          .register(meterRegistry);
+    }
+  }
 
   private boolean isCacheAvailableInternal() {
-    return cacheEnabled && redisTemplate != null;
+    return cacheStore != null && cacheValueCodec != null;
   }
 
   // Safe cache operations with ClassCastException handling
   private <T> T safeGet(String key, Class<T> expectedClass) {
+    return safeGet(key, expectedClass, bytes -> cacheValueCodec.decode(bytes, expectedClass));
+  }
+
+  private <T> T safeGet(String key, Class<T> expectedClass, Function<byte[], T> decoder) {
     if (!isCacheAvailableInternal()) {
       return null;
     }
 
+    Object local = localCache.getIfPresent(key);
+    if (local != null) {
+      if (expectedClass.isInstance(local)) {
+        familyMetrics.l1Hit(key);
+        return expectedClass.cast(local);
+      }
+      localCache.invalidate(key);
+    }
+
+    // Open circuit: behave like a miss without waiting on the store
+    if (!circuitBreaker.allowRequest()) {
+      familyMetrics.skipped(key);
+      return null;
+    }
+
     try {
-      Object cached = redisTemplate.opsForValue().get(key);
-      if (cached != null && expectedClass.isInstance(cached)) {
-        return expectedClass.cast(cached);
+      byte[] bytes;
+      long start = System.nanoTime();
+      try {
+        bytes = cacheStore.get(key);
+        circuitBreaker.recordSuccess();
+      } catch (Exception e) {
+        circuitBreaker.recordFailure();
+        throw e;
+      }
+      long elapsed = System.nanoTime() - start;
+      T cached = bytes != null ? decoder.apply(bytes) : null;
+      if (cached != null) {
+        l2Hits.increment();
+        familyMetrics.l2Hit(key, bytes.length, elapsed);
+        localCache.put(key, cached);
+        return cached;
       }
-    } catch (ClassCastException e) {
-      log.warn("ClassCastException for key: {} - clearing cache entry. Error: {}", key, e.getMessage());
+      l2Misses.increment();
+      familyMetrics.miss(key, elapsed);
+    } catch (ClassCastException | SerializationException e) {
+      familyMetrics.error(key);
+      log.warn("Unreadable cache entry for key: {} - clearing cache entry. Error: {}", key, e.getMessage());
       // Clear the problematic cache entry
       try {
-        redisTemplate.delete(key);
+        cacheStore.invalidate(List.of(key), List.of(), null);
       } catch (Exception deleteEx) {
         log.warn("Failed to delete problematic cache entry: {}", key);
       }
     } catch (Exception e) {
+      familyMetrics.error(key);
       log.warn("Error retrieving from cache for key: {} - {}", key, e.getMessage());
     }
     return null;
   }
 
   private void safeSet(String key, Object value, long ttl) {
+    safeSet(key, value, cacheValueCodec::encode, ttl);
+  }
+
+  private <T> void safeSet(String key, T value, Function<T, byte[]> encoder, long ttl) {
     if (!isCacheAvailableInternal()) {
       return;
     }
 
+    byte[] bytes;
+    try {
+      bytes = encoder.apply(value);
+    } catch (Exception e) {
+      log.warn("Failed to encode cache value for key: {} - {}", key, e.getMessage());
+      return;
+    }
+
+    if (!circuitBreaker.allowRequest()) {
+      return;
+    }
+
     try {
-      redisTemplate.opsForValue().set(key, value, ttl, TimeUnit.SECONDS);
+      long start = System.nanoTime();
+      cacheStore.set(key, bytes, ttl);
+      circuitBreaker.recordSuccess();
+      familyMetrics.write(key, bytes.length, System.nanoTime() - start);
+      localCache.put(key, value);
+      // Other replicas may still hold the previous value in their L1
+      publishInvalidation(key);
     } catch (Exception e) {
+      circuitBreaker.recordFailure();
+      familyMetrics.error(key);
       log.warn("Failed to cache for key: {} - {}", key, e.getMessage());
     }
   }
 
+  // Key for an entry in the current namespace generation: "g<gen>:<family><id>"
+  private String key(String family, Object id) {
+    return "g" + generation(GENERATION_KEY) + ":" + family + id;
+  }
+
+  private long generation(String counterKey) {
+    if (!isCacheAvailableInternal()) {
+      return 0;
+    }
+
+    Long cached = generations.getIfPresent(counterKey);
+    if (cached != null) {
+      return cached;
+    }
+    if (!circuitBreaker.allowRequest()) {
+      return lastKnownGenerations.getOrDefault(counterKey, 0L);
+    }
+
+    try {
+      long generation = cacheStore.getCounter(counterKey);
+      circuitBreaker.recordSuccess();
+      generations.put(counterKey, generation);
+      lastKnownGenerations.put(counterKey, generation);
+      return generation;
+    } catch (Exception e) {
+      circuitBreaker.recordFailure();
+      // Not remembered, so the next call retries once Redis is back
+      log.warn("Failed to read cache generation: {} - {}", counterKey, e.getMessage());
+      return lastKnownGenerations.getOrDefault(counterKey, 0L);
+    }
+  }
+
+  // Delete keys from the store and from the L1 of every replica
+  private void evict(String... keys) {
+    invalidate(Arrays.asList(keys));
+  }
+
+  // One round trip: delete the keys, bump the given generation counters and
+  // tell the other replicas' L1s about both
+  private void invalidate(List<String> keys, String... generationCounters) {
+    localCache.invalidateAll(keys);
+    plansBodies.invalidateAll(keys);
+    generations.invalidateAll(Arrays.asList(generationCounters));
+
+    List<String> published = new ArrayList<>(keys);
+    published.addAll(Arrays.asList(generationCounters));
+
+    if (!circuitBreaker.allowRequest()) {
+      recordDroppedInvalidation(keys, Arrays.asList(generationCounters));
+      throw new IllegalStateException("Cache store circuit open");
+    }
+    try {
+      cacheStore.invalidate(keys, Arrays.asList(generationCounters),
+          nodeId + "\n" + String.join("\n", published));
+      circuitBreaker.recordSuccess();
+      keys.forEach(familyMetrics::invalidated);
+    } catch (RuntimeException e) {
+      recordDroppedInvalidation(keys, Arrays.asList(generationCounters));
+      circuitBreaker.recordFailure();
+      throw e;
+    }
+    // Drop a generation a concurrent reader may have cached before the INCR
+    generations.invalidateAll(Arrays.asList(generationCounters));
+  }
+
+  private void recordDroppedInvalidation(List<String> keys, List<String> generationCounters) {
+    droppedCounters.addAll(generationCounters);
+    if (droppedOverflow.get() || droppedKeys.size() + keys.size() > MAX_DROPPED_INVALIDATIONS) {
+      droppedOverflow.set(true);
+      droppedKeys.clear();
+    } else {
+      droppedKeys.addAll(keys);
+    }
+    firstDroppedAt.compareAndSet(0, System.currentTimeMillis());
+  }
+
+  // Recovery hook of the circuit breaker: entries whose invalidation was
+  // dropped would otherwise be served (and answer conditional requests)
+  // until their TTL
+  private void replayDroppedInvalidations() {
+    if (!isCacheAvailableInternal()) {
+      return;
+    }
+    long since = firstDroppedAt.getAndSet(0);
+    if (since == 0) {
+      return;
+    }
+
+    boolean retire = droppedOverflow.getAndSet(false) || circuitBreaker.getOpenedAt() >= since;
+    List<String> keys = drain(droppedKeys);
+    List<String> counters = drain(droppedCounters);
+    if (retire) {
+      keys = List.of();
+      counters = List.of(GENERATION_KEY);
+    }
+
+    List<String> published = new ArrayList<>(keys);
+    published.addAll(counters);
+    try {
+      cacheStore.invalidate(keys, counters, nodeId + "\n" + String.join("\n", published));
+      generations.invalidateAll(counters);
+      if (retire) {
+        log.info("Retired cache namespace - invalidations were dropped while Redis was unreachable");
+      } else {
+        log.info("Replayed {} cache invalidations dropped while Redis was unreachable", published.size());
+      }
+    } catch (RuntimeException e) {
+      if (retire) {
+        droppedOverflow.set(true);
+      }
+      recordDroppedInvalidation(keys, counters);
+      circuitBreaker.recordFailure();
+      log.warn("Failed to replay dropped cache invalidations - {}", e.getMessage());
+    }
+  }
+
+  private static List<String> drain(Set<String> dropped) {
+    List<String> drained = new ArrayList<>();
+    for (String key : dropped) {
+      if (dropped.remove(key)) {
+        drained.add(key);
+      }
+    }
+    return drained;
+  }
+
+  private void publishInvalidation(String... keys) {
+    if (!circuitBreaker.allowRequest()) {
+      return;
+    }
+
+    try {
+      cacheStore.notifyPeers(nodeId + "\n" + String.join("\n", keys));
+      circuitBreaker.recordSuccess();
+    } catch (Exception e) {
+      circuitBreaker.recordFailure();
+      // Remote L1 entries still expire after cache.l1.ttl-seconds
+      log.warn("Failed to publish cache invalidation for {} keys - {}", keys.length, e.getMessage());
+    }
+  }
+
+  // Called for every message on INVALIDATION_CHANNEL: "<nodeId>\n<key>\n<key>..."
+  public void onInvalidationMessage(String message) {
+    String[] parts = message.split("\n");
+    if (parts.length < 2 || nodeId.equals(parts[0])) {
+      return;
+    }
+
+    for (int i = 1; i < parts.length; i++) {
+      if (INVALIDATE_ALL.equals(parts[i])) {
+        localCache.invalidateAll();
+        plansBodies.invalidateAll();
+        generations.invalidateAll();
+        log.debug("Cleared local cache on remote request");
+        return;
+      }
+      localCache.invalidate(parts[i]);
+      plansBodies.invalidate(parts[i]);
+      generations.invalidate(parts[i]);
+    }
+    log.debug("Evicted {} local cache entries on remote request", parts.length - 1);
+  }
+
+  // Hit/miss counts and hit rate per tier, for diagnostics
+  public Map<String, Object> getCacheStats() {
+    CacheStats l1 = localCache.stats();
+    Map<String, Object> l1Stats = new LinkedHashMap<>();
+    l1Stats.put("hits", l1.hitCount());
+    l1Stats.put("misses", l1.missCount());
+    l1Stats.put("hitRate", l1.hitRate());
+    l1Stats.put("evictions", l1.evictionCount());
+    l1Stats.put("size", localCache.estimatedSize());
+
+    long hits = l2Hits.sum();
+    long misses = l2Misses.sum();
+    Map<String, Object> l2Stats = new LinkedHashMap<>();
+    l2Stats.put("hits", hits);
+    l2Stats.put("misses", misses);
+    l2Stats.put("hitRate", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", isCacheAvailableInternal());
+    stats.put("circuit", circuitBreaker.getState().name());
+    stats.put("l1", l1Stats);
+    stats.put("l2", l2Stats);
+    return stats;
+  }
+
   // User Profile Caching
   public void cacheUserProfile(String email, UserProfileDTO userProfile) {
     if (!isCacheAvailableInternal()) {
@@ -85,13 +485,13 @@ public class CacheService {
       return;
     }
 
-    String key = USER_PROFILE_KEY + email;
+    String key = key(USER_PROFILE_KEY, email);
     safeSet(key, userProfile, USER_PROFILE_TTL);
     log.debug("Cached user profile for email: {}", email);
   }
 
   public UserProfileDTO getCachedUserProfile(String email) {
-    String key = USER_PROFILE_KEY + email;
+    String key = key(USER_PROFILE_KEY, email);
     UserProfileDTO cached = safeGet(key, UserProfileDTO.class);
     if (cached != null) {
       log.debug("Retrieved cached user profile for email: {}", email);
@@ -106,13 +506,16 @@ public class CacheService {
       return;
     }
 
-    String key = DIET_PLAN_KEY + userId;
+    String key = key(DIET_PLAN_KEY, userId);
     safeSet(key, dietPlan, DIET_PLAN_TTL);
+    if (dietPlan.getId() != null) {
+      safeSet(key(DIET_VERSION_KEY, userId), planVersion(dietPlan.getId(), dietPlan.isTemplate()), DIET_PLAN_TTL);
+    }
     log.debug("Cached diet plan for userId: {}", userId);
   }
 
   public SimpleDietPlanDTO getCachedDietPlan(Long userId) {
-    String key = DIET_PLAN_KEY + userId;
+    String key = key(DIET_PLAN_KEY, userId);
     SimpleDietPlanDTO cached = safeGet(key, SimpleDietPlanDTO.class);
     if (cached != null) {
       log.debug("Retrieved cached diet plan for userId: {}", userId);
@@ -127,13 +530,17 @@ public class CacheService {
       return;
     }
 
-    String key = WORKOUT_PLAN_KEY + userId;
+    String key = key(WORKOUT_PLAN_KEY, userId);
     safeSet(key, workoutPlan, WORKOUT_PLAN_TTL);
+    if (workoutPlan.getId() != null) {
+      safeSet(key(WORKOUT_VERSION_KEY, userId), planVersion(workoutPlan.getId(), workoutPlan.isTemplate()),
+          WORKOUT_PLAN_TTL);
+    }
     log.debug("Cached workout plan for userId: {}", userId);
   }
 
   public SimpleWorkoutPlanDTO getCachedWorkoutPlan(Long userId) {
-    String key = WORKOUT_PLAN_KEY + userId;
+    String key = key(WORKOUT_PLAN_KEY, userId);
     SimpleWorkoutPlanDTO cached = safeGet(key, SimpleWorkoutPlanDTO.class);
     if (cached != null) {
       log.debug("Retrieved cached workout plan for userId: {}", userId);
@@ -141,15 +548,35 @@ public class CacheService {
     return cached;
   }
 
+  // Plan versions: plans are immutable once generated and every regeneration
+  // creates a new plan id, so the id identifies the plan content. Template
+  // plans draw their ids from another sequence than stored plans, so the two
+  // can coincide across a switch of template mode; their versions carry a
+  // "t" prefix to keep them apart.
+  public static String planVersion(Long planId, boolean template) {
+    if (planId == null) {
+      return null;
+    }
+    return template ? "t" + planId : String.valueOf(planId);
+  }
+
+  public String getCachedDietPlanVersion(Long userId) {
+    return safeGet(key(DIET_VERSION_KEY, userId), String.class);
+  }
+
+  public String getCachedWorkoutPlanVersion(Long userId) {
+    return safeGet(key(WORKOUT_VERSION_KEY, userId), String.class);
+  }
+
   // Nutrition Analysis Caching
   public void cacheNutritionAnalysis(Long userId, NutritionAnalysis analysis) {
-    String key = NUTRITION_ANALYSIS_KEY + userId;
+    String key = key(NUTRITION_ANALYSIS_KEY, userId);
     safeSet(key, analysis, NUTRITION_ANALYSIS_TTL);
     log.debug("Cached nutrition analysis for userId: {}", userId);
   }
 
   public NutritionAnalysis getCachedNutritionAnalysis(Long userId) {
-    String key = NUTRITION_ANALYSIS_KEY + userId;
+    String key = key(NUTRITION_ANALYSIS_KEY, userId);
     NutritionAnalysis cached = safeGet(key, NutritionAnalysis.class);
     if (cached != null) {
       log.debug("Retrieved cached nutrition analysis for userId: {}", userId);
@@ -157,48 +584,251 @@ public class CacheService {
     return cached;
   }
 
-  // Complete Plans Response Caching
-  public void cachePlansResponse(String email, OptimizedPlansResponseDTO response) {
-    String key = PLANS_RESPONSE_KEY + email;
-    safeSet(key, response, PLANS_RESPONSE_TTL);
-    log.debug("Cached complete plans response for email: {}", email);
+  // Complete Plans Response Caching. The response is composed from the
+  // component entries (profile, plans, nutrition) and kept only locally, as
+  // the final HTTP JSON body with a strong ETag, so hits are written to the
+  // client as-is without Jackson. Returns the serialized body (null if it
+  // failed).
+  public CachedBody cachePlansResponse(String email, OptimizedPlansResponseDTO response) {
+    // Components were just written; the shortest TTL bounds the composite
+    long expiresAt = System.currentTimeMillis()
+        + TimeUnit.SECONDS.toMillis(Math.min(USER_PROFILE_TTL, NUTRITION_ANALYSIS_TTL));
+    return cachePlansResponse(email, response, expiresAt);
   }
 
-  public OptimizedPlansResponseDTO getCachedPlansResponse(String email) {
-    String key = PLANS_RESPONSE_KEY + email;
-    OptimizedPlansResponseDTO cached = safeGet(key, OptimizedPlansResponseDTO.class);
-    if (cached != null) {
-      log.debug("Retrieved cached plans response for email: {}", email);
+  public CachedBody cachePlansResponse(String email, OptimizedPlansResponseDTO response, long expiresAt) {
+    SimpleDietPlanDTO dietPlan = response.getDietPlan();
+    SimpleWorkoutPlanDTO workoutPlan = response.getWorkoutPlan();
+    String etag = plansEtag(response.getUser(),
+        dietPlan != null ? planVersion(dietPlan.getId(), dietPlan.isTemplate()) : null,
+        workoutPlan != null ? planVersion(workoutPlan.getId(), workoutPlan.isTemplate()) : null);
+    CachedBody cachedBody;
+    try {
+      cachedBody = CachedBody.of(objectMapper.writeValueAsBytes(response), etag,
+          expiresAt - TimeUnit.SECONDS.toMillis(staleSeconds), expiresAt);
+    } catch (JsonProcessingException e) {
+      log.warn("Failed to serialize plans response for email: {} - {}", email, e.getMessage());
+      return null;
     }
-    return cached;
+
+    if (isCacheAvailableInternal()) {
+      plansBodies.put(key(PLANS_RESPONSE_KEY, email), cachedBody);
+    }
+    plansResponseHits.invalidate(email);
+    log.debug("Cached complete plans response for email: {} ({} bytes)", email, cachedBody.body().length);
+    return cachedBody;
+  }
+
+  // The composed body, if this node has one for the current ETag (see
+  // getCachedPlansEtag); a body composed from older components is dropped
+  public CachedBody getCachedPlansResponse(String email, String etag) {
+    if (!isCacheAvailableInternal() || etag == null) {
+      return null;
+    }
+
+    String key = key(PLANS_RESPONSE_KEY, email);
+    CachedBody body = plansBodies.getIfPresent(key);
+    if (body == null) {
+      return null;
+    }
+    if (!etag.equals(body.etag())) {
+      plansBodies.invalidate(key);
+      return null;
+    }
+    familyMetrics.l1Hit(key);
+    log.debug("Retrieved cached plans response for email: {}", email);
+    return body;
   }
 
-  // Foods by Preference Caching - SKIP CACHING OF ENTITY OBJECTS
-  public void cacheFoodsByPreference(String preference, Object foods) {
-    // Disable caching of entity objects to avoid ClassCastException
-    log.debug("Skipping foods cache for preference: {} to avoid ClassCastException", preference);
-    // Don't cache Food entities - they cause classloader issues
+  // Current ETag of a user's plans response from the cached profile and plan
+  // versions alone (no plan is read and nothing is composed); null unless
+  // all of them are cached
+  public String getCachedPlansEtag(String email) {
+    UserProfileDTO profile = getCachedUserProfile(email);
+    if (profile == null || profile.getUserId() == null || !profile.isProfileComplete()) {
+      return null;
+    }
+    return plansEtag(profile, getCachedDietPlanVersion(profile.getUserId()),
+        getCachedWorkoutPlanVersion(profile.getUserId()));
   }
 
-  public Object getCachedFoodsByPreference(String preference) {
-    // Always return null to force database lookup
-    log.debug("Skipping foods cache lookup for preference: {} to avoid ClassCastException", preference);
-    return null;
+  // A plans response is a function of the profile (nutrition and summary are
+  // derived from it) and of the two plans, which are immutable per version.
+  // The profile enters through its generated toString, so fields added later
+  // are covered too.
+  static String plansEtag(UserProfileDTO profile, String dietVersion, String workoutVersion) {
+    if (profile == null || dietVersion == null || workoutVersion == null) {
+      return null;
+    }
+
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(profile.toString().getBytes(StandardCharsets.UTF_8));
+      return "\"plans-" + dietVersion + "-" + workoutVersion + "-"
+          + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * Everything a plans response is composed of, read from Redis in one
+   * pipelined MGET (plus PTTLs). Returns null unless every component is cached.
+   * {@code expiresAt} is when the first of them drops out of Redis.
+   */
+  public PlanComponents getCachedPlanComponents(String email) {
+    UserProfileDTO profile = getCachedUserProfile(email);
+    if (profile == null || profile.getUserId() == null || !circuitBreaker.allowRequest()) {
+      return null;
+    }
+
+    Long userId = profile.getUserId();
+    List<String> keys = List.of(key(DIET_PLAN_KEY, userId), key(WORKOUT_PLAN_KEY, userId),
+        key(NUTRITION_ANALYSIS_KEY, userId), key(USER_PROFILE_KEY, email));
+
+    List<CacheStore.Entry> entries;
+    long start = System.nanoTime();
+    try {
+      entries = cacheStore.getWithTtl(keys);
+      circuitBreaker.recordSuccess();
+    } catch (Exception e) {
+      circuitBreaker.recordFailure();
+      log.warn("Failed to read plan components for email: {} - {}", email, e.getMessage());
+      return null;
+    }
+    long elapsed = System.nanoTime() - start;
+
+    try {
+      SimpleDietPlanDTO dietPlan = decodeComponent(keys.get(0), entries.get(0).value(), SimpleDietPlanDTO.class,
+          elapsed);
+      SimpleWorkoutPlanDTO workoutPlan = decodeComponent(keys.get(1), entries.get(1).value(),
+          SimpleWorkoutPlanDTO.class, elapsed);
+      NutritionAnalysis nutritionAnalysis = decodeComponent(keys.get(2), entries.get(2).value(),
+          NutritionAnalysis.class, elapsed);
+      if (dietPlan == null || workoutPlan == null || nutritionAnalysis == null) {
+        return null;
+      }
+
+      long ttlMs = Long.MAX_VALUE;
+      for (CacheStore.Entry entry : entries) {
+        long pttl = entry.ttlMillis();
+        if (pttl < 0) {
+          // Expired between the two commands, or written without a TTL
+          return null;
+        }
+        ttlMs = Math.min(ttlMs, pttl);
+      }
+      return new PlanComponents(profile, dietPlan, workoutPlan, nutritionAnalysis,
+          System.currentTimeMillis() + ttlMs);
+    } catch (ClassCastException | SerializationException e) {
+      log.warn("Unreadable plan components for email: {} - {}", email, e.getMessage());
+      return null;
+    }
   }
 
-  // Exercises by Focus Area Caching - SKIP CACHING OF ENTITY OBJECTS
-  public void cacheExercisesByFocus(String focusArea, String difficulty, Object exercises) {
-    // Disable caching of entity objects to avoid ClassCastException
-    log.debug("Skipping exercises cache for focusArea: {} and difficulty: {} to avoid ClassCastException",
-        focusArea, difficulty);
-    // Don't cache Exercise entities - they cause classloader issues
+  private <T> T decodeComponent(String key, byte[] bytes, Class<T> type, long elapsedNanos) {
+    if (bytes == null) {
+      l2Misses.increment();
+      familyMetrics.miss(key, elapsedNanos);
+      return null;
+    }
+
+    T value = cacheValueCodec.decode(bytes, type);
+    l2Hits.increment();
+    familyMetrics.l2Hit(key, bytes.length, elapsedNanos);
+    localCache.put(key, value);
+    return value;
   }
 
-  public Object getCachedExercisesByFocus(String focusArea, String difficulty) {
-    // Always return null to force database lookup
-    log.debug("Skipping exercises cache lookup for focusArea: {} and difficulty: {} to avoid ClassCastException",
-        focusArea, difficulty);
-    return null;
+  // True when a served entry should be revalidated in the background: it is
+  // past its soft expiry, or it is hot and about to get there
+  public boolean shouldRefreshPlansResponse(String email, CachedBody cachedBody) {
+    long now = System.currentTimeMillis();
+    if (now >= cachedBody.softExpiresAt()) {
+      return true;
+    }
+
+    LongAdder hits = plansResponseHits.get(email, k -> new LongAdder());
+    hits.increment();
+    return now >= cachedBody.softExpiresAt() - TimeUnit.SECONDS.toMillis(refreshAheadWindowSeconds)
+        && hits.sum() >= refreshAheadMinHits;
+  }
+
+  /**
+   * Background refresh of a user's component entries against freshly loaded
+   * database state. Plans are immutable per id, so entries that still match
+   * get their TTLs renewed in one pipelined round trip; entries that disagree
+   * are evicted and reloaded by the next request. An entry deleted by a
+   * concurrent invalidation stays deleted (EXPIRE never creates keys).
+   */
+  public void revalidatePlanComponents(String email, UserProfileDTO profile, String dietVersion,
+      String workoutVersion) {
+    if (!isCacheAvailableInternal()) {
+      return;
+    }
+
+    Long userId = profile.getUserId();
+    if (!profile.equals(getCachedUserProfile(email))) {
+      invalidateUserCache(email);
+      invalidateUserPlansCache(userId);
+      log.debug("Cached profile for email: {} no longer matches - evicted", email);
+      return;
+    }
+    if (!Objects.equals(dietVersion, getCachedDietPlanVersion(userId))
+        || !Objects.equals(workoutVersion, getCachedWorkoutPlanVersion(userId))) {
+      invalidateUserPlansCache(userId);
+      plansBodies.invalidate(key(PLANS_RESPONSE_KEY, email));
+      log.debug("Cached plans for userId: {} no longer match - evicted", userId);
+      return;
+    }
+
+    if (!circuitBreaker.allowRequest()) {
+      return;
+    }
+    Map<String, Long> ttls = new LinkedHashMap<>();
+    ttls.put(key(USER_PROFILE_KEY, email), USER_PROFILE_TTL);
+    ttls.put(key(NUTRITION_ANALYSIS_KEY, userId), NUTRITION_ANALYSIS_TTL);
+    ttls.put(key(DIET_PLAN_KEY, userId), DIET_PLAN_TTL);
+    ttls.put(key(DIET_VERSION_KEY, userId), DIET_PLAN_TTL);
+    ttls.put(key(WORKOUT_PLAN_KEY, userId), WORKOUT_PLAN_TTL);
+    ttls.put(key(WORKOUT_VERSION_KEY, userId), WORKOUT_PLAN_TTL);
+    try {
+      cacheStore.expire(ttls);
+      circuitBreaker.recordSuccess();
+    } catch (Exception e) {
+      circuitBreaker.recordFailure();
+      log.warn("Failed to renew plan components for email: {} - {}", email, e.getMessage());
+      return;
+    }
+
+    // Recompose on the next read so the new expiry is picked up
+    plansBodies.invalidate(key(PLANS_RESPONSE_KEY, email));
+    log.debug("Renewed plan components for email: {}", email);
+  }
+
+  /** Cached components of one user's plans response; see getCachedPlanComponents. */
+  public record PlanComponents(UserProfileDTO profile, SimpleDietPlanDTO dietPlan, SimpleWorkoutPlanDTO workoutPlan,
+      NutritionAnalysis nutritionAnalysis, long expiresAt) {
+  }
+
+  /**
+   * A pre-serialized JSON response body, its strong ETag, its soft expiry and
+   * its hard expiry (epoch millis). The ETag is the given one, or the quoted
+   * SHA-256 of the body when none could be derived.
+   */
+  public record CachedBody(String etag, byte[] body, long softExpiresAt, long expiresAt) {
+
+    public static CachedBody of(byte[] body, String etag, long softExpiresAt, long expiresAt) {
+      if (etag != null) {
+        return new CachedBody(etag, body, softExpiresAt, expiresAt);
+      }
+      try {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+        return new CachedBody("\"" + HexFormat.of().formatHex(digest) + "\"", body, softExpiresAt, expiresAt);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 not available", e);
+      }
+    }
   }
 
   // Cache Invalidation Methods
@@ -208,8 +838,7 @@ public class CacheService {
     }
 
     try {
-      redisTemplate.delete(USER_PROFILE_KEY + email);
-      redisTemplate.delete(PLANS_RESPONSE_KEY + email);
+      evict(key(USER_PROFILE_KEY, email), key(PLANS_RESPONSE_KEY, email));
       log.debug("Invalidated user cache for email: {}", email);
     } catch (Exception e) {
       log.warn("Failed to invalidate user cache for email: {} - {}", email, e.getMessage());
@@ -222,62 +851,73 @@ public class CacheService {
     }
 
     try {
-      redisTemplate.delete(DIET_PLAN_KEY + userId);
-      redisTemplate.delete(WORKOUT_PLAN_KEY + userId);
-      redisTemplate.delete(NUTRITION_ANALYSIS_KEY + userId);
+      evict(key(DIET_PLAN_KEY, userId), key(WORKOUT_PLAN_KEY, userId), key(NUTRITION_ANALYSIS_KEY, userId),
+          key(DIET_VERSION_KEY, userId), key(WORKOUT_VERSION_KEY, userId));
       log.debug("Invalidated plans cache for userId: {}", userId);
     } catch (Exception e) {
       log.warn("Failed to invalidate plans cache for userId: {} - {}", userId, e.getMessage());
     }
   }
 
-  public void invalidateAllUserCache(String email, Long userId) {
-    if (!isCacheAvailableInternal()) {
+  // Run a cache write/invalidation only once the surrounding transaction has
+  // committed, so concurrent readers cannot re-cache rows that are about to
+  // change (or cache rows that end up rolled back). Runs immediately outside
+  // a transaction.
+  public void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
       return;
     }
 
-    try {
-      invalidateUserCache(email);
-      invalidateUserPlansCache(userId);
-      // Also clear any food/exercise caches that might cause issues
-      clearFoodAndExerciseCaches();
-      log.debug("Invalidated all cache for email: {} and userId: {}", email, userId);
-    } catch (Exception e) {
-      log.warn("Failed to invalidate all cache for email: {} and userId: {} - {}", email, userId, e.getMessage());
-    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
   }
 
-  private void clearFoodAndExerciseCaches() {
+  public void invalidateAllUserCache(String email, Long userId) {
     if (!isCacheAvailableInternal()) {
       return;
     }
 
     try {
-      // Clear all food and exercise caches that might have classloader issues
-      redisTemplate.delete(redisTemplate.keys(FOODS_BY_PREFERENCE_KEY + "*"));
-      redisTemplate.delete(redisTemplate.keys(EXERCISES_BY_FOCUS_KEY + "*"));
-      log.debug("Cleared food and exercise caches");
+      // User and plan entries in one round trip
+      invalidate(List.of(key(USER_PROFILE_KEY, email), key(PLANS_RESPONSE_KEY, email),
+          key(DIET_PLAN_KEY, userId), key(WORKOUT_PLAN_KEY, userId), key(NUTRITION_ANALYSIS_KEY, userId),
+          key(DIET_VERSION_KEY, userId), key(WORKOUT_VERSION_KEY, userId)));
+      log.debug("Invalidated all cache for email: {} and userId: {}", email, userId);
     } catch (Exception e) {
-      log.warn("Failed to clear food and exercise caches: {}", e.getMessage());
+      log.warn("Failed to invalidate all cache for email: {} and userId: {} - {}", email, userId, e.getMessage());
     }
   }
 
-  // Cache Health Check
+  // Cache Health Check: an open circuit answers immediately; otherwise a PING
+  // result is reused for cache.redis.health-cache-ms
   public boolean isCacheAvailable() {
     if (!isCacheAvailableInternal()) {
       return false;
     }
+    if (System.currentTimeMillis() - lastHealthCheckAt < healthCacheMs) {
+      return lastHealthy && circuitBreaker.getState() == RedisCircuitBreaker.State.CLOSED;
+    }
+    if (!circuitBreaker.allowRequest()) {
+      return false;
+    }
 
+    boolean healthy;
     try {
-      String testKey = "health:check:" + System.currentTimeMillis();
-      redisTemplate.opsForValue().set(testKey, "ok", 5, TimeUnit.SECONDS);
-      boolean result = "ok".equals(redisTemplate.opsForValue().get(testKey));
-      redisTemplate.delete(testKey);
-      return result;
+      healthy = cacheStore.ping();
+      circuitBreaker.recordSuccess();
     } catch (Exception e) {
+      circuitBreaker.recordFailure();
       log.warn("Redis cache health check failed: {}", e.getMessage());
-      return false;
+      healthy = false;
     }
+    lastHealthy = healthy;
+    lastHealthCheckAt = System.currentTimeMillis();
+    return healthy;
   }
 
   public void clearAllCache() {
@@ -287,7 +927,13 @@ public class CacheService {
     }
 
     try {
-      redisTemplate.getConnectionFactory().getConnection().flushAll();
+      // New namespace generation instead of FLUSHALL: O(1), and leaves
+      // non-cache data (leases, other services' keys) alone
+      invalidate(List.of(), GENERATION_KEY);
+      localCache.invalidateAll();
+      plansBodies.invalidateAll();
+      generations.invalidateAll();
+      publishInvalidation(INVALIDATE_ALL);
       log.info("Cleared all Redis cache");
     } catch (Exception e) {
       log.error("Error clearing all cache: {}", e.getMessage());
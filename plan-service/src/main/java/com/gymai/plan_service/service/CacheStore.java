@@ -0,0 +1,43 @@
+package com.gymai.plan_service.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared (L2) byte store behind {@link CacheService}: Redis in clustered
+ * deployments, an off-heap store for single-node installs without Redis.
+ * Values are already encoded by the {@link CacheValueCodec}; implementations
+ * only store bytes with TTLs and throw on backend failure.
+ */
+public interface CacheStore {
+
+  byte[] get(String key);
+
+  void set(String key, byte[] value, long ttlSeconds);
+
+  /**
+   * Values and remaining TTLs of the keys, in one round trip. Missing keys
+   * have a null value and a negative TTL.
+   */
+  List<Entry> getWithTtl(List<String> keys);
+
+  // Current value of an increment-only counter, 0 if never incremented
+  long getCounter(String key);
+
+  /**
+   * Deletes the keys, increments the counters and, if {@code notification} is
+   * not null, sends it to the other nodes - all in one round trip.
+   */
+  void invalidate(List<String> keys, List<String> counters, String notification);
+
+  // Sends an L1 invalidation message to the other nodes, if there are any
+  void notifyPeers(String notification);
+
+  // Renews the TTLs of the keys that still exist; never creates keys
+  void expire(Map<String, Long> ttlSeconds);
+
+  boolean ping();
+
+  record Entry(byte[] value, long ttlMillis) {
+  }
+}
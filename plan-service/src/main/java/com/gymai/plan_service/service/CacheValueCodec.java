@@ -0,0 +1,14 @@
+package com.gymai.plan_service.service;
+
+/**
+ * Turns cached DTOs into the bytes stored in Redis and back. Implementations
+ * must keep reading every format that may still be in Redis, so a codec can be
+ * swapped without flushing the cache.
+ */
+public interface CacheValueCodec {
+
+  byte[] encode(Object value);
+
+  // Returns null when the stored value is not a {@code type}
+  <T> T decode(byte[] bytes, Class<T> type);
+}
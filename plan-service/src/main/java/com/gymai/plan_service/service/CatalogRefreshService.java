@@ -0,0 +1,113 @@
+package com.gymai.plan_service.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the in-memory catalog indexes of every replica in step with the
+ * catalog tables.
+ *
+ * The replica that changes the catalog rebuilds its own index and tells the
+ * others over Redis pub/sub; a periodic rebuild catches replicas that missed
+ * the message. Rebuild failures are logged, never thrown: the change itself
+ * is already committed.
+ */
+@Service
+@Slf4j
+public class CatalogRefreshService {
+
+  public static final String CATALOG_CHANNEL = "catalog:changed";
+  private static final String FOODS = "foods";
+  private static final String EXERCISES = "exercises";
+
+  @Autowired
+  private FoodCatalogIndex foodCatalogIndex;
+
+  @Autowired
+  private ExerciseIndex exerciseIndex;
+
+  @Autowired(required = false)
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Value("${app.catalog.refresh-minutes:10}")
+  private long refreshMinutes;
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private ScheduledExecutorService refreshScheduler;
+
+  @PostConstruct
+  void init() {
+    // The warm-up runner builds the indexes at startup
+    refreshScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("catalog-refresh").factory());
+    refreshScheduler.scheduleWithFixedDelay(this::refreshAll, refreshMinutes, refreshMinutes, TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    refreshScheduler.shutdownNow();
+  }
+
+  // Call once the food change has committed
+  public void foodsChanged() {
+    refresh(FOODS);
+    publish(FOODS);
+  }
+
+  // Call once the exercise change has committed
+  public void exercisesChanged() {
+    refresh(EXERCISES);
+    publish(EXERCISES);
+  }
+
+  // Called for every message on CATALOG_CHANNEL: "<nodeId>\n<catalog>"
+  public void onCatalogMessage(String message) {
+    int separator = message.indexOf('\n');
+    if (separator < 0 || nodeId.equals(message.substring(0, separator))) {
+      return;
+    }
+    refresh(message.substring(separator + 1));
+  }
+
+  private void refreshAll() {
+    refresh(FOODS);
+    refresh(EXERCISES);
+  }
+
+  private void refresh(String catalog) {
+    try {
+      if (FOODS.equals(catalog)) {
+        foodCatalogIndex.refresh();
+      } else if (EXERCISES.equals(catalog)) {
+        exerciseIndex.refresh();
+      } else {
+        log.debug("Ignoring change of unknown catalog {}", catalog);
+      }
+    } catch (Exception e) {
+      // The periodic rebuild tries again
+      log.warn("Failed to refresh {} catalog index - {}", catalog, e.getMessage());
+    }
+  }
+
+  private void publish(String catalog) {
+    if (stringRedisTemplate == null) {
+      return;
+    }
+
+    try {
+      stringRedisTemplate.convertAndSend(CATALOG_CHANNEL, nodeId + "\n" + catalog);
+    } catch (Exception e) {
+      // Other replicas pick the change up on their next periodic rebuild
+      log.warn("Failed to publish {} catalog change - {}", catalog, e.getMessage());
+    }
+  }
+}
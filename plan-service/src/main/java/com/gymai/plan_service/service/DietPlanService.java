@@ -3,20 +3,20 @@ package com.gymai.plan_service.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.gymai.plan_service.entity.*;
 import com.gymai.plan_service.repository.*;
 import com.gymai.plan_service.dto.SimpleDietPlanDTO;
 import com.gymai.plan_service.mapper.DietPlanMapper;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.gymai.plan_service.util.Tenths;
+import jakarta.persistence.Tuple;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Service
 @Transactional
@@ -24,28 +24,66 @@ public class DietPlanService {
 
     private static final Logger log = LoggerFactory.getLogger(DietPlanService.class);
 
+    private static final List<String> MEAL_TYPES = Arrays.asList("BREAKFAST", "LUNCH", "DINNER", "SNACK");
+
+    // Category lookups shared by every meal so generation allocates no filters
+    private static final String[] GRAINS = { "GRAINS" };
+    private static final String[] PROTEIN = { "PROTEIN" };
+    private static final String[] VEGETABLES = { "VEGETABLES" };
+    private static final String[] FRUITS = { "FRUITS" };
+    private static final String[] PROTEIN_OR_DAIRY = { "PROTEIN", "DAIRY" };
+    private static final String[] SNACK_CATEGORIES = { "FRUITS", "NUTS", "DAIRY" };
+
+    // Portion rules of each meal, in order: the share of the meal's calories a
+    // component gets and its minimum grams. The last component gets the
+    // calories the others left.
+    private static final double REST = -1;
+    private static final List<Portion> BREAKFAST_PORTIONS = List.of(
+            new Portion(GRAINS, 0.4, 50), new Portion(PROTEIN_OR_DAIRY, 0.35, 30), new Portion(FRUITS, REST, 100));
+    private static final List<Portion> MAIN_MEAL_PORTIONS = List.of(
+            new Portion(GRAINS, 0.35, 80), new Portion(PROTEIN, 0.45, 100), new Portion(VEGETABLES, REST, 150));
+    private static final List<Portion> SNACK_PORTIONS = List.of(new Portion(SNACK_CATEGORIES, REST, 50));
+
     @Autowired
-    private FoodRepository foodRepository;
+    private FoodCatalogIndex foodCatalogIndex;
 
     @Autowired
     private DietPlanRepository dietPlanRepository;
 
+    @Autowired
+    private DayMealPlanRepository dayMealPlanRepository;
+
+    @Autowired
+    private MealRepository mealRepository;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
     @Autowired
     private NutritionCalculatorService nutritionCalculator;
 
     @Autowired
     private CacheService cacheService;
 
+    @Autowired
+    private PlanSnapshotService planSnapshotService;
+
     @Autowired
     private DietPlanMapper dietPlanMapper;
 
-    @PersistenceContext
-    private EntityManager entityManager;
+    @Autowired
+    private PlanTemplateService planTemplateService;
+
+    // Width of the daily calorie bands that share a diet template
+    @Value("${app.plan-templates.calorie-band:50}")
+    private double calorieBand;
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
+    @Autowired
+    private PooledPlanRepository pooledPlanRepository;
+
+    // Width of the daily calorie bands the plan pool is bucketed by
+    @Value("${app.plan-pool.calorie-band:100}")
+    private double poolCalorieBand;
 
     public DietPlan generateCustomDietPlan(User user) {
         log.info("Generating custom diet plan for user: {} (preference: {})", user.getUserId(), user.getPreference());
@@ -81,17 +119,112 @@ public class DietPlanService {
         cacheService.invalidateUserPlansCache(user.getUserId());
 
         // Delete existing plan
-        List<DietPlan> plans = dietPlanRepository.findByUserId(user.getUserId());
-        for (DietPlan plan : plans) {
-            dietPlanRepository.delete(plan); // This triggers cascade and orphan removal.
-        }
-        log.info("Deleted {} diet plans for userId={}", plans.size(), user.getUserId());
-        entityManager.flush(); // Ensure deletion is committed
+        int deleted = deleteDietPlansInBulk(user.getUserId());
+        log.info("Deleted {} diet plans for userId={}", deleted, user.getUserId());
 
         // Generate new plan
         return generateNewDietPlan(user);
     }
 
+    // New plan as a DTO: a shared template in template mode, a stored plan otherwise
+    public SimpleDietPlanDTO generateDietPlanDTO(User user) {
+        if (!planTemplateService.isEnabled()) {
+            return dietPlanMapper.toDTO(generateCustomDietPlan(user));
+        }
+        return assignDietTemplate(user, planTemplateService.nextVariety(user.getUserId(), PlanSnapshot.DIET));
+    }
+
+    @Transactional
+    @CacheEvict(value = "diet-plans", key = "#user.userId")
+    public SimpleDietPlanDTO regenerateDietPlanDTO(User user) {
+        if (!planTemplateService.isEnabled()) {
+            return dietPlanMapper.toDTO(regenerateDietPlan(user));
+        }
+
+        log.info("Regenerating diet plan from a template for userId={}", user.getUserId());
+        cacheService.invalidateUserPlansCache(user.getUserId());
+
+        // Pick the variety before the current reference is deleted
+        int variety = planTemplateService.nextVariety(user.getUserId(), PlanSnapshot.DIET);
+        int deleted = deleteDietPlansInBulk(user.getUserId());
+        log.info("Deleted {} diet plans for userId={}", deleted, user.getUserId());
+
+        return assignDietTemplate(user, variety);
+    }
+
+    // Plan pool bucket of a profile: the diet types and the calorie band, the
+    // only inputs meal generation reads
+    public String poolBucket(User user) {
+        return poolBucket(user, calculateRoundedNeeds(user));
+    }
+
+    // Generates an unowned plan in the middle of the profile's calorie band
+    // and adds it to the plan pool
+    @Transactional
+    public void createPooledDietPlan(User sample) {
+        NutritionCalculatorService.NutritionalNeeds needs = calculateRoundedNeeds(sample);
+        String bucket = poolBucket(sample, needs);
+        needs.calories = Tenths.round(Math.round(needs.calories / poolCalorieBand) * poolCalorieBand);
+
+        DietPlan dietPlan = buildDietPlan(sample, needs);
+        dietPlan.setUserId(PooledPlan.UNCLAIMED_USER_ID);
+        dietPlan = dietPlanRepository.save(dietPlan);
+        pooledPlanRepository.save(new PooledPlan(PlanSnapshot.DIET, bucket, dietPlan.getId()));
+        log.debug("Added diet plan {} to pool bucket {}", dietPlan.getId(), bucket);
+    }
+
+    // Claims the oldest pooled plan of the user's bucket in one transaction:
+    // the user's previous plans are deleted and the pooled plan is handed over
+    // with the user's own targets, its portions rescaled to their calories.
+    // Returns null when the bucket is empty.
+    @Transactional
+    public SimpleDietPlanDTO claimPooledDietPlan(User user) {
+        NutritionCalculatorService.NutritionalNeeds needs = calculateRoundedNeeds(user);
+        List<PooledPlan> claimable = pooledPlanRepository.findClaimable(PlanSnapshot.DIET, poolBucket(user, needs),
+                PageRequest.of(0, 1));
+        if (claimable.isEmpty()) {
+            return null;
+        }
+        Long entryId = claimable.get(0).getId();
+        Long planId = claimable.get(0).getPlanId();
+
+        cacheService.invalidateUserPlansCache(user.getUserId());
+        int deleted = deleteDietPlansInBulk(user.getUserId());
+        pooledPlanRepository.deleteClaimed(entryId);
+
+        DietPlan dietPlan = dietPlanRepository.findWithDailyPlansById(planId).orElse(null);
+        if (dietPlan == null) {
+            // Dangling entry; it is dropped and the caller generates instead
+            log.warn("Pooled diet plan {} no longer exists", planId);
+            return null;
+        }
+        dayMealPlanRepository.findWithMealsByDietPlanId(planId);
+        mealRepository.findWithFoodItemsByDietPlanId(planId);
+
+        // Same foods, portions sized for the user's calories exactly as
+        // generation would size them (shares, minimums, rounding)
+        for (DayMealPlan day : dietPlan.getDailyPlans()) {
+            for (Meal meal : day.getMeals()) {
+                sizePortions(meal, mealCalories(meal.getMealType(), needs.calories));
+            }
+        }
+        dietPlan.setUserId(user.getUserId());
+        dietPlan.setDailyCalorieTarget(needs.calories);
+        dietPlan.setDailyProteinTarget(needs.protein);
+        dietPlan.setDailyCarbsTarget(needs.carbs);
+        dietPlan.setDailyFatTarget(needs.fat);
+        dietPlan.setCreatedDate(LocalDate.now());
+
+        // Snapshot the DTO in this transaction; cache it (not the entity) once committed
+        SimpleDietPlanDTO planDTO = dietPlanMapper.toDTO(dietPlan);
+        planSnapshotService.saveDietPlan(planDTO);
+        cacheService.afterCommit(() -> cacheService.cacheDietPlan(user.getUserId(), planDTO));
+
+        log.info("Claimed pooled diet plan {} for userId={} ({} kcal, {} old plans deleted)", planId,
+                user.getUserId(), needs.calories, deleted);
+        return planDTO;
+    }
+
     @Transactional(readOnly = true)
     public DietPlan getExistingDietPlan(Long userId) {
         log.info("Fetching existing diet plan for userId={}", userId);
@@ -105,66 +238,60 @@ public class DietPlanService {
         return getExistingDietPlanSafe(userId);
     }
 
-    @Transactional(readOnly = true)
-    private DietPlan getExistingDietPlanSafe(Long userId) {
-        // Step 1: Get basic diet plan
-        Optional<DietPlan> planOpt = dietPlanRepository.findLatestByUserId(userId);
-        if (!planOpt.isPresent()) {
-            return null;
+    // Plan DTO for reads: served from the snapshot store or a template reference,
+    // falling back to (and backfilling from) the normalized tables for plans
+    // generated before snapshots
+    public SimpleDietPlanDTO getExistingDietPlanDTO(Long userId) {
+        SimpleDietPlanDTO snapshot = planSnapshotService.findDietPlan(userId);
+        if (snapshot != null) {
+            return snapshot;
         }
 
-        DietPlan dietPlan = planOpt.get();
-
-        // Step 2: Manually load daily plans
-        List<DayMealPlan> dayMealPlans = entityManager.createQuery(
-                "SELECT dmp FROM DayMealPlan dmp WHERE dmp.dietPlan.id = :planId ORDER BY dmp.dayNumber",
-                DayMealPlan.class)
-                .setParameter("planId", dietPlan.getId())
-                .getResultList();
-
-        // Step 3: Load meals for each day plan
-        for (DayMealPlan dayPlan : dayMealPlans) {
-            List<Meal> meals = entityManager.createQuery(
-                    "SELECT m FROM Meal m WHERE m.dayMealPlan.id = :dayPlanId ORDER BY m.mealType",
-                    Meal.class)
-                    .setParameter("dayPlanId", dayPlan.getId())
-                    .getResultList();
-
-            // Step 4: Load food items for each meal
-            for (Meal meal : meals) {
-                List<FoodItem> foodItems = entityManager.createQuery(
-                        "SELECT fi FROM FoodItem fi JOIN FETCH fi.food WHERE fi.meal.id = :mealId",
-                        FoodItem.class)
-                        .setParameter("mealId", meal.getId())
-                        .getResultList();
-
-                meal.getFoodItems().clear();
-                meal.getFoodItems().addAll(foodItems);
-
-                // Set back reference
-                for (FoodItem item : foodItems) {
-                    item.setMeal(meal);
-                }
-            }
+        SimpleDietPlanDTO templatePlan = planTemplateService.findDietPlan(userId);
+        if (templatePlan != null) {
+            return templatePlan;
+        }
 
-            dayPlan.getMeals().clear();
-            dayPlan.getMeals().addAll(meals);
+        SimpleDietPlanDTO planDTO = findDietPlanDTO(userId);
+        if (planDTO == null) {
+            return null;
+        }
 
-            // Set back references
-            for (Meal meal : meals) {
-                meal.setDayMealPlan(dayPlan);
-            }
+        planSnapshotService.saveDietPlan(planDTO);
+        return planDTO;
+    }
+
+    // Latest plan as a DTO straight from scalar projections: two queries, no
+    // managed entities, so no persistence context, dirty checking or
+    // recomputed entity totals
+    public SimpleDietPlanDTO findDietPlanDTO(Long userId) {
+        List<Tuple> plans = dietPlanRepository.findPlanRowsByUserId(userId, PageRequest.of(0, 1));
+        if (plans.isEmpty()) {
+            return null;
         }
 
-        dietPlan.getDailyPlans().clear();
-        dietPlan.getDailyPlans().addAll(dayMealPlans);
+        Tuple plan = plans.get(0);
+        return dietPlanMapper.toDTO(plan,
+                dayMealPlanRepository.findFoodItemRowsByDietPlanId(plan.get("id", Long.class)));
+    }
 
-        // Set back references
-        for (DayMealPlan dayPlan : dayMealPlans) {
-            dayPlan.setDietPlan(dietPlan);
+    @Transactional(readOnly = true)
+    private DietPlan getExistingDietPlanSafe(Long userId) {
+        // Step 1: Get latest diet plan with its daily plans
+        List<DietPlan> plans = dietPlanRepository.findWithDailyPlansByUserId(userId);
+        if (plans.isEmpty()) {
+            return null;
         }
 
-        log.debug("Successfully loaded diet plan with {} daily plans", dayMealPlans.size());
+        DietPlan dietPlan = plans.get(0);
+
+        // Step 2: Load meals, then food items, for the whole plan in one query each.
+        // Results share the persistence context with the plan, so every collection
+        // in the graph is initialized in place and back references already resolve.
+        dayMealPlanRepository.findWithMealsByDietPlanId(dietPlan.getId());
+        mealRepository.findWithFoodItemsByDietPlanId(dietPlan.getId());
+
+        log.debug("Successfully loaded diet plan with {} daily plans", dietPlan.getDailyPlans().size());
         return dietPlan;
     }
 
@@ -173,44 +300,105 @@ public class DietPlanService {
     public void deleteUserDietPlans(Long userId) {
         log.info("Deleting diet plans for userId: {}", userId);
         cacheService.invalidateUserPlansCache(userId);
-        List<DietPlan> plans = dietPlanRepository.findByUserId(userId);
-        for (DietPlan plan : plans) {
-            dietPlanRepository.delete(plan); // This triggers cascade and orphan removal.
-        }
-        log.info("Deleted {} diet plans for userId={}", plans.size(), userId);
+        int deleted = deleteDietPlansInBulk(userId);
+        // Drop anything a concurrent read re-cached before this transaction committed
+        cacheService.afterCommit(() -> cacheService.invalidateUserPlansCache(userId));
+        log.info("Deleted {} diet plans for userId={}", deleted, userId);
+    }
+
+    // Set-based delete of all of a user's diet plans, child tables first, without
+    // loading the plan graph; returns the number of plans removed
+    private int deleteDietPlansInBulk(Long userId) {
+        foodItemRepository.deleteByDietPlanUserId(userId);
+        mealRepository.deleteByDietPlanUserId(userId);
+        dayMealPlanRepository.deleteByDietPlanUserId(userId);
+        planSnapshotService.deleteDietPlans(userId);
+        planTemplateService.deleteDietPlans(userId);
+        return dietPlanRepository.deleteAllByUserId(userId);
     }
 
     @Transactional
     private DietPlan generateNewDietPlan(User user) {
+        DietPlan dietPlan = buildDietPlan(user, calculateRoundedNeeds(user));
+        dietPlan.setUserId(user.getUserId());
+
+        // Persist the complete graph once; ids come from the pooled sequences and
+        // the inserts are flushed as ordered JDBC batches at commit
+        dietPlan = dietPlanRepository.save(dietPlan);
+
+        // Snapshot the DTO in this transaction; cache it (not the entity) once committed
+        SimpleDietPlanDTO planDTO = dietPlanMapper.toDTO(dietPlan);
+        planSnapshotService.saveDietPlan(planDTO);
+        cacheService.afterCommit(() -> cacheService.cacheDietPlan(user.getUserId(), planDTO));
+
+        log.info("Successfully saved and cached diet plan for userId={} with planId={}", user.getUserId(),
+                dietPlan.getId());
+
+        return dietPlan;
+    }
+
+    // Meals only depend on the calorie target and the diet types, so those are
+    // the template inputs (calories quantized to a band). The template is
+    // generated for the middle of the band; the user's exact targets are kept
+    // as their overrides.
+    private SimpleDietPlanDTO assignDietTemplate(User user, int variety) {
+        NutritionCalculatorService.NutritionalNeeds needs = calculateRoundedNeeds(user);
+        List<String> dietTypes = getDietTypes(user.getPreference());
+        long band = Math.round(needs.calories / calorieBand);
+        String templateKey = planTemplateService.templateKey(PlanSnapshot.DIET, variety, dietTypes, band, calorieBand);
+
+        NutritionCalculatorService.NutritionalNeeds bandNeeds = new NutritionCalculatorService.NutritionalNeeds(
+                Tenths.round(band * calorieBand), needs.protein, needs.carbs, needs.fat);
+        Map<String, Object> overrides = new LinkedHashMap<>();
+        overrides.put("dailyCalorieTarget", needs.calories);
+        overrides.put("dailyProteinTarget", needs.protein);
+        overrides.put("dailyCarbsTarget", needs.carbs);
+        overrides.put("dailyFatTarget", needs.fat);
+
+        SimpleDietPlanDTO planDTO = planTemplateService.assign(user.getUserId(), PlanSnapshot.DIET, templateKey,
+                variety, SimpleDietPlanDTO.class, () -> dietPlanMapper.toDTO(buildDietPlan(user, bandNeeds)),
+                overrides);
+        cacheService.afterCommit(() -> cacheService.cacheDietPlan(user.getUserId(), planDTO));
+
+        log.info("Assigned diet template (band {} kcal, variety {}) to userId={} as planId={}",
+                bandNeeds.calories, variety, user.getUserId(), planDTO.getId());
+        return planDTO;
+    }
+
+    private String poolBucket(User user, NutritionCalculatorService.NutritionalNeeds needs) {
+        return String.join(",", getDietTypes(user.getPreference())) + "|"
+                + Tenths.round(Math.round(needs.calories / poolCalorieBand) * poolCalorieBand);
+    }
+
+    private NutritionCalculatorService.NutritionalNeeds calculateRoundedNeeds(User user) {
         // Calculate nutritional needs
         NutritionCalculatorService.NutritionalNeeds needs = nutritionCalculator.calculateNutritionalNeeds(user);
 
         // Round off nutrition values to 1 decimal place
-        needs.calories = roundTo1Decimal(needs.calories);
-        needs.protein = roundTo1Decimal(needs.protein);
-        needs.carbs = roundTo1Decimal(needs.carbs);
-        needs.fat = roundTo1Decimal(needs.fat);
+        needs.calories = Tenths.round(needs.calories);
+        needs.protein = Tenths.round(needs.protein);
+        needs.carbs = Tenths.round(needs.carbs);
+        needs.fat = Tenths.round(needs.fat);
 
         log.debug("Calculated needs -> Calories: {}, Protein: {}, Carbs: {}, Fat: {}",
                 needs.calories, needs.protein, needs.carbs, needs.fat);
+        return needs;
+    }
 
+    // Unsaved 7-day plan graph (without a user) for the given targets
+    private DietPlan buildDietPlan(User user, NutritionCalculatorService.NutritionalNeeds needs) {
         // Create new diet plan
         DietPlan dietPlan = new DietPlan();
-        dietPlan.setUserId(user.getUserId());
         dietPlan.setDailyCalorieTarget(needs.calories);
         dietPlan.setDailyProteinTarget(needs.protein);
         dietPlan.setDailyCarbsTarget(needs.carbs);
         dietPlan.setDailyFatTarget(needs.fat);
 
-        // Save the diet plan first to get the ID
-        dietPlan = dietPlanRepository.save(dietPlan);
-
-        // Pre-fetch foods for better performance (with caching)
-        Map<String, List<Food>> foodsByMealTypeAndCategory = preloadFoodsByUserPreference(user);
+        // Resolve foods from the in-memory catalog index (no catalog queries)
+        List<String> dietTypes = getDietTypes(user.getPreference());
 
         // Validate that we have foods available
-        if (foodsByMealTypeAndCategory.isEmpty()
-                || foodsByMealTypeAndCategory.values().stream().allMatch(List::isEmpty)) {
+        if (MEAL_TYPES.stream().noneMatch(mealType -> foodCatalogIndex.hasFoods(dietTypes, mealType))) {
             log.error("No foods available for user preference: {}. Cannot generate diet plan.", user.getPreference());
             throw new RuntimeException("No foods available for the selected dietary preference");
         }
@@ -221,105 +409,47 @@ public class DietPlanService {
 
         for (int i = 0; i < 7; i++) {
             log.debug("Generating meal plan for {}", dayNames.get(i));
-            DayMealPlan dayPlan = generateDayMealPlan(i + 1, dayNames.get(i), user, needs, foodsByMealTypeAndCategory);
+            DayMealPlan dayPlan = generateDayMealPlan(i + 1, dayNames.get(i), user, needs, dietTypes);
             dietPlan.addDayMealPlan(dayPlan);
         }
 
-        // Save the complete plan with all relationships
-        dietPlan = dietPlanRepository.save(dietPlan);
-
-        // Cache the DTO result (not the entity)
-        SimpleDietPlanDTO planDTO = dietPlanMapper.toDTO(dietPlan);
-        cacheService.cacheDietPlan(user.getUserId(), planDTO);
-
-        log.info("Successfully saved and cached diet plan for userId={} with planId={}", user.getUserId(),
-                dietPlan.getId());
-
         return dietPlan;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, List<Food>> preloadFoodsByUserPreference(User user) {
-        String cacheKey = user.getPreference();
-
-        // Check cache first
-        Object cachedFoods = cacheService.getCachedFoodsByPreference(cacheKey);
-        if (cachedFoods instanceof Map) {
-            log.debug("Retrieved foods from cache for preference: {}", user.getPreference());
-            return (Map<String, List<Food>>) cachedFoods;
-        }
-
-        Map<String, List<Food>> foodMap = new HashMap<>();
-        List<String> dietTypes = getDietTypes(user.getPreference());
-        List<String> mealTypes = Arrays.asList("BREAKFAST", "LUNCH", "DINNER", "SNACK");
-
-        log.debug("Preloading foods for diet types: {} and meal types: {}", dietTypes, mealTypes);
-
-        for (String mealType : mealTypes) {
-            List<Food> foods = foodRepository.findByDietTypeInAndMealType(dietTypes, mealType);
-
-            // Remove any invalid foods (null values or foods with zero/negative nutrition)
-            foods = foods.stream()
-                    .filter(food -> food != null &&
-                            food.getCaloriesPer100g() > 0 &&
-                            food.getName() != null && !food.getName().trim().isEmpty())
-                    .collect(Collectors.toList());
-
-            foodMap.put(mealType, foods);
-
-            // If no foods found for specific meal type, use lunch as fallback
-            if (foods.isEmpty() && !mealType.equals("LUNCH")) {
-                List<Food> lunchFoods = foodRepository.findByDietTypeInAndMealType(dietTypes, "LUNCH");
-                lunchFoods = lunchFoods.stream()
-                        .filter(food -> food != null &&
-                                food.getCaloriesPer100g() > 0 &&
-                                food.getName() != null && !food.getName().trim().isEmpty())
-                        .collect(Collectors.toList());
-                foodMap.put(mealType, lunchFoods);
-                log.warn("No foods found for meal type {}. Using LUNCH foods as fallback.", mealType);
-            }
-        }
-
-        // Cache the result
-        cacheService.cacheFoodsByPreference(cacheKey, foodMap);
-        log.debug("Cached foods for preference: {}", user.getPreference());
-
-        return foodMap;
-    }
-
     private DayMealPlan generateDayMealPlan(int dayNumber, String dayName, User user,
-            NutritionCalculatorService.NutritionalNeeds needs, Map<String, List<Food>> preloadedFoods) {
+            NutritionCalculatorService.NutritionalNeeds needs, List<String> dietTypes) {
         log.debug("Generating {} (Day {}) with calorie target: {}", dayName, dayNumber, needs.calories);
 
         DayMealPlan dayPlan = new DayMealPlan(dayNumber, dayName);
 
         // Calorie distribution - rounded to 1 decimal place
-        double breakfastCalories = roundTo1Decimal(needs.calories * 0.25);
-        double lunchCalories = roundTo1Decimal(needs.calories * 0.35);
-        double dinnerCalories = roundTo1Decimal(needs.calories * 0.30);
-        double snackCalories = roundTo1Decimal(needs.calories * 0.10);
+        double breakfastCalories = mealCalories("BREAKFAST", needs.calories);
+        double lunchCalories = mealCalories("LUNCH", needs.calories);
+        double dinnerCalories = mealCalories("DINNER", needs.calories);
+        double snackCalories = mealCalories("SNACK", needs.calories);
 
         log.debug("Meal distribution -> Breakfast: {}, Lunch: {}, Dinner: {}, Snack: {}",
                 breakfastCalories, lunchCalories, dinnerCalories, snackCalories);
 
-        // Generate meals using preloaded foods
-        dayPlan.addMeal(generateMeal("BREAKFAST", breakfastCalories, user, preloadedFoods));
-        dayPlan.addMeal(generateMeal("LUNCH", lunchCalories, user, preloadedFoods));
-        dayPlan.addMeal(generateMeal("DINNER", dinnerCalories, user, preloadedFoods));
-        dayPlan.addMeal(generateMeal("SNACK", snackCalories, user, preloadedFoods));
+        // Generate meals from the catalog index
+        dayPlan.addMeal(generateMeal("BREAKFAST", breakfastCalories, user, dietTypes));
+        dayPlan.addMeal(generateMeal("LUNCH", lunchCalories, user, dietTypes));
+        dayPlan.addMeal(generateMeal("DINNER", dinnerCalories, user, dietTypes));
+        dayPlan.addMeal(generateMeal("SNACK", snackCalories, user, dietTypes));
 
         return dayPlan;
     }
 
     private Meal generateMeal(String mealType, double targetCalories, User user,
-            Map<String, List<Food>> preloadedFoods) {
+            List<String> dietTypes) {
         log.debug("Generating {} with target calories: {}", mealType, targetCalories);
 
-        List<Food> availableFoods = preloadedFoods.get(mealType);
-        if (availableFoods == null || availableFoods.isEmpty()) {
+        // Foods are drawn from this meal type, or from LUNCH if it has none
+        String foodMealType = mealType;
+        if (!foodCatalogIndex.hasFoods(dietTypes, mealType)) {
             log.warn("No available foods for meal type: {}. Using fallback.", mealType);
-            availableFoods = preloadedFoods.get("LUNCH");
-            if (availableFoods == null || availableFoods.isEmpty()) {
+            foodMealType = "LUNCH";
+            if (!foodCatalogIndex.hasFoods(dietTypes, foodMealType)) {
                 log.error("No foods available even with fallback for user: {}", user.getUserId());
                 return new Meal(mealType); // Return empty meal
             }
@@ -327,118 +457,62 @@ public class DietPlanService {
 
         switch (mealType.toUpperCase()) {
             case "BREAKFAST":
-                return generateBreakfast(availableFoods, targetCalories, user);
+                return generateBreakfast(dietTypes, foodMealType, targetCalories, user);
             case "LUNCH":
             case "DINNER":
-                return generateMainMeal(mealType, availableFoods, targetCalories, user);
+                return generateMainMeal(mealType, dietTypes, foodMealType, targetCalories, user);
             case "SNACK":
-                return generateSnack(availableFoods, targetCalories, user);
+                return generateSnack(dietTypes, foodMealType, targetCalories, user);
             default:
                 log.error("Unknown meal type: {}", mealType);
                 return new Meal(mealType);
         }
     }
 
-    private Meal generateBreakfast(List<Food> availableFoods, double targetCalories, User user) {
+    private Meal generateBreakfast(List<String> dietTypes, String foodMealType, double targetCalories, User user) {
         log.debug("Generating Breakfast for user: {}", user.getUserId());
 
         Meal breakfast = new Meal("BREAKFAST");
 
-        Optional<Food> grains = getRandomFoodByCategory(availableFoods, "GRAINS");
-        Optional<Food> protein = availableFoods.stream()
-                .filter(f -> "PROTEIN".equals(f.getCategory()) || "DAIRY".equals(f.getCategory()))
-                .findFirst();
-        Optional<Food> fruits = getRandomFoodByCategory(availableFoods, "FRUITS");
-
-        double remainingCalories = targetCalories;
-
-        if (grains.isPresent()) {
-            double grainsCalories = roundTo1Decimal(targetCalories * 0.4);
-            double quantity = Math.max(50,
-                    roundTo1Decimal(((grainsCalories / grains.get().getCaloriesPer100g()) * 100)));
-            breakfast.addFoodItem(new FoodItem(grains.get(), quantity));
-            remainingCalories -= grainsCalories;
-            log.debug("Added grains: {}g [{}] - {} calories", quantity, grains.get().getName(), grainsCalories);
-        }
-
-        if (protein.isPresent()) {
-            double proteinCalories = roundTo1Decimal(targetCalories * 0.35);
-            double quantity = Math.max(30,
-                    roundTo1Decimal(((proteinCalories / protein.get().getCaloriesPer100g()) * 100)));
-            breakfast.addFoodItem(new FoodItem(protein.get(), quantity));
-            remainingCalories -= proteinCalories;
-            log.debug("Added protein: {}g [{}] - {} calories", quantity, protein.get().getName(), proteinCalories);
-        }
-
-        if (fruits.isPresent() && remainingCalories > 0) {
-            double quantity = Math.max(100,
-                    roundTo1Decimal(((remainingCalories / fruits.get().getCaloriesPer100g()) * 100)));
-            breakfast.addFoodItem(new FoodItem(fruits.get(), quantity));
-            log.debug("Added fruit: {}g [{}] - {} calories", quantity, fruits.get().getName(), remainingCalories);
-        }
+        foodCatalogIndex.randomFood(dietTypes, foodMealType, GRAINS)
+                .ifPresent(food -> breakfast.addFoodItem(new FoodItem(food, 0)));
+        foodCatalogIndex.firstFood(dietTypes, foodMealType, PROTEIN_OR_DAIRY)
+                .ifPresent(food -> breakfast.addFoodItem(new FoodItem(food, 0)));
+        foodCatalogIndex.randomFood(dietTypes, foodMealType, FRUITS)
+                .ifPresent(food -> breakfast.addFoodItem(new FoodItem(food, 0)));
+        sizePortions(breakfast, targetCalories);
 
         return breakfast;
     }
 
-    private Meal generateMainMeal(String mealType, List<Food> availableFoods,
+    private Meal generateMainMeal(String mealType, List<String> dietTypes, String foodMealType,
             double targetCalories, User user) {
         log.debug("Generating {} for user: {}", mealType, user.getUserId());
 
         Meal meal = new Meal(mealType);
 
         // Use random selection for variety
-        Optional<Food> grains = getRandomFoodByCategory(availableFoods, "GRAINS");
-        Optional<Food> protein = getRandomFoodByCategory(availableFoods, "PROTEIN");
-        Optional<Food> vegetables = getRandomFoodByCategory(availableFoods, "VEGETABLES");
-
-        double remainingCalories = targetCalories;
-
-        if (grains.isPresent()) {
-            double grainsCalories = roundTo1Decimal(targetCalories * 0.35);
-            double quantity = Math.max(80,
-                    roundTo1Decimal(((grainsCalories / grains.get().getCaloriesPer100g()) * 100)));
-            meal.addFoodItem(new FoodItem(grains.get(), quantity));
-            remainingCalories -= grainsCalories;
-            log.debug("Added grains: {}g [{}] - {} calories", quantity, grains.get().getName(), grainsCalories);
-        }
-
-        if (protein.isPresent()) {
-            double proteinCalories = roundTo1Decimal(targetCalories * 0.45);
-            double quantity = Math.max(100,
-                    roundTo1Decimal(((proteinCalories / protein.get().getCaloriesPer100g()) * 100)));
-            meal.addFoodItem(new FoodItem(protein.get(), quantity));
-            remainingCalories -= proteinCalories;
-            log.debug("Added protein: {}g [{}] - {} calories", quantity, protein.get().getName(), proteinCalories);
-        }
-
-        if (vegetables.isPresent() && remainingCalories > 0) {
-            double quantity = Math.max(150,
-                    roundTo1Decimal(((remainingCalories / vegetables.get().getCaloriesPer100g()) * 100)));
-            meal.addFoodItem(new FoodItem(vegetables.get(), quantity));
-            log.debug("Added vegetables: {}g [{}] - {} calories", quantity, vegetables.get().getName(),
-                    remainingCalories);
-        }
+        foodCatalogIndex.randomFood(dietTypes, foodMealType, GRAINS)
+                .ifPresent(food -> meal.addFoodItem(new FoodItem(food, 0)));
+        foodCatalogIndex.randomFood(dietTypes, foodMealType, PROTEIN)
+                .ifPresent(food -> meal.addFoodItem(new FoodItem(food, 0)));
+        foodCatalogIndex.randomFood(dietTypes, foodMealType, VEGETABLES)
+                .ifPresent(food -> meal.addFoodItem(new FoodItem(food, 0)));
+        sizePortions(meal, targetCalories);
 
         return meal;
     }
 
-    private Meal generateSnack(List<Food> availableFoods, double targetCalories, User user) {
+    private Meal generateSnack(List<String> dietTypes, String foodMealType, double targetCalories, User user) {
         log.debug("Generating Snack for user: {}", user.getUserId());
 
         Meal snack = new Meal("SNACK");
 
-        List<Food> snackFoods = availableFoods.stream()
-                .filter(f -> "FRUITS".equals(f.getCategory()) ||
-                        "NUTS".equals(f.getCategory()) ||
-                        "DAIRY".equals(f.getCategory()))
-                .collect(Collectors.toList());
-
-        if (!snackFoods.isEmpty()) {
-            Food selectedSnack = snackFoods.get((int) (Math.random() * snackFoods.size()));
-            double quantity = Math.max(50,
-                    roundTo1Decimal(((targetCalories / selectedSnack.getCaloriesPer100g()) * 100)));
-            snack.addFoodItem(new FoodItem(selectedSnack, quantity));
-            log.debug("Added snack: {}g [{}] - {} calories", quantity, selectedSnack.getName(), targetCalories);
+        Optional<Food> snackFood = foodCatalogIndex.randomFood(dietTypes, foodMealType, SNACK_CATEGORIES);
+
+        if (snackFood.isPresent()) {
+            snack.addFoodItem(new FoodItem(snackFood.get(), 0));
+            sizePortions(snack, targetCalories);
         } else {
             log.warn("No snack foods available for user: {}", user.getUserId());
         }
@@ -446,16 +520,73 @@ public class DietPlanService {
         return snack;
     }
 
-    private Optional<Food> getRandomFoodByCategory(List<Food> foods, String category) {
-        List<Food> categoryFoods = foods.stream()
-                .filter(f -> category.equals(f.getCategory()))
-                .collect(Collectors.toList());
+    // Share of the day's calories a meal gets
+    private static double mealCalories(String mealType, double dailyCalories) {
+        switch (mealType.toUpperCase()) {
+            case "BREAKFAST":
+                return Tenths.round(dailyCalories * 0.25);
+            case "LUNCH":
+                return Tenths.round(dailyCalories * 0.35);
+            case "DINNER":
+                return Tenths.round(dailyCalories * 0.30);
+            case "SNACK":
+                return Tenths.round(dailyCalories * 0.10);
+            default:
+                return 0;
+        }
+    }
+
+    // Sets the portion of each food in the meal from the meal's portion rules:
+    // the food of a component gets its share of the calories (the last one
+    // what is left, or is dropped if nothing is), rounded to tenths and never
+    // below the minimum. Foods are matched to components by category; a
+    // missing component takes nothing.
+    private void sizePortions(Meal meal, double targetCalories) {
+        double remainingCalories = targetCalories;
+        for (Portion portion : portionsOf(meal.getMealType())) {
+            FoodItem item = meal.getFoodItems().stream()
+                    .filter(candidate -> portion.covers(candidate.getFood()))
+                    .findFirst()
+                    .orElse(null);
+            if (item == null) {
+                continue;
+            }
 
-        if (categoryFoods.isEmpty()) {
-            return Optional.empty();
+            double calories = portion.share() == REST ? remainingCalories
+                    : Tenths.round(targetCalories * portion.share());
+            if (portion.share() == REST && calories <= 0) {
+                // Nothing left for the last component
+                meal.removeFoodItem(item);
+                continue;
+            }
+            double quantity = Math.max(portion.minGrams(),
+                    Tenths.round(calories / item.getFood().getCaloriesPer100g() * 100));
+            item.setQuantity(quantity);
+            remainingCalories -= calories;
+            log.debug("Added {}: {}g [{}] - {} calories", item.getFood().getCategory(), quantity,
+                    item.getFood().getName(), calories);
         }
+    }
 
-        return Optional.of(categoryFoods.get((int) (Math.random() * categoryFoods.size())));
+    private static List<Portion> portionsOf(String mealType) {
+        switch (mealType.toUpperCase()) {
+            case "BREAKFAST":
+                return BREAKFAST_PORTIONS;
+            case "LUNCH":
+            case "DINNER":
+                return MAIN_MEAL_PORTIONS;
+            case "SNACK":
+                return SNACK_PORTIONS;
+            default:
+                return List.of();
+        }
+    }
+
+    private record Portion(String[] categories, double share, double minGrams) {
+
+        boolean covers(Food food) {
+            return food != null && Arrays.asList(categories).contains(food.getCategory());
+        }
     }
 
     private List<String> getDietTypes(String preference) {
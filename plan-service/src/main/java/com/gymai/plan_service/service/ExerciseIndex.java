@@ -0,0 +1,155 @@
+package com.gymai.plan_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.gymai.plan_service.entity.Exercise;
+import com.gymai.plan_service.repository.ExerciseRepository;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-mostly exercise pools keyed by (focusArea, difficulty).
+ *
+ * Each pool is resolved once from the exercises table, with the BEGINNER
+ * fallback already applied, and the whole index is replaced atomically when
+ * the catalog changes.
+ */
+@Service
+public class ExerciseIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ExerciseIndex.class);
+
+    private static final List<String> FOCUS_AREAS = Arrays.asList("CARDIO", "UPPER_BODY", "LOWER_BODY", "FULL_BODY");
+    private static final String FALLBACK_DIFFICULTY = "BEGINNER";
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    private volatile Snapshot snapshot;
+
+    // Rebuild all pools from the exercises table and publish them in one step
+    public synchronized void refresh() {
+        List<Exercise> exercises = exerciseRepository.findAll();
+        exercises.sort(Comparator.comparing(Exercise::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<String, List<Exercise>> exact = new HashMap<>();
+        Set<String> difficulties = new HashSet<>();
+        for (String focusArea : FOCUS_AREAS) {
+            for (String muscleGroupOrCategory : getSourcesForFocusArea(focusArea)) {
+                for (Exercise exercise : exercises) {
+                    if (!isUsable(exercise) || !matches(focusArea, muscleGroupOrCategory, exercise)) {
+                        continue;
+                    }
+                    difficulties.add(exercise.getDifficulty());
+                    exact.computeIfAbsent(key(focusArea, exercise.getDifficulty()), k -> new ArrayList<>())
+                            .add(exercise);
+                }
+            }
+        }
+
+        Map<String, List<Exercise>> frozenExact = new HashMap<>();
+        exact.forEach((key, pool) -> frozenExact.put(key, List.copyOf(pool)));
+
+        // Precompute the BEGINNER fallback for every difficulty seen in the catalog
+        Map<String, List<Exercise>> withFallback = new HashMap<>(frozenExact);
+        for (String focusArea : FOCUS_AREAS) {
+            List<Exercise> beginner = frozenExact.getOrDefault(key(focusArea, FALLBACK_DIFFICULTY),
+                    Collections.emptyList());
+            for (String difficulty : difficulties) {
+                withFallback.putIfAbsent(key(focusArea, difficulty), beginner);
+            }
+        }
+
+        this.snapshot = new Snapshot(Collections.unmodifiableMap(frozenExact),
+                Collections.unmodifiableMap(withFallback));
+        log.info("Exercise index rebuilt with {} pools from {} exercises", frozenExact.size(), exercises.size());
+    }
+
+    // True if exercises exist for exactly this focus area and difficulty
+    public boolean hasExercises(String focusArea, String difficulty) {
+        return !current().exact.getOrDefault(key(focusArea, difficulty), Collections.emptyList()).isEmpty();
+    }
+
+    // Pick up to {@code count} distinct exercises, falling back to BEGINNER when
+    // the requested difficulty has none
+    public List<Exercise> sample(String focusArea, String difficulty, int count) {
+        Snapshot current = current();
+        List<Exercise> pool = current.withFallback.get(key(focusArea, difficulty));
+        if (pool == null) {
+            pool = current.exact.getOrDefault(key(focusArea, FALLBACK_DIFFICULTY), Collections.emptyList());
+        }
+        if (pool.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Selection sampling without replacement over the shared, immutable pool
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int needed = Math.min(count, pool.size());
+        List<Exercise> picked = new ArrayList<>(needed);
+        for (int i = 0, remaining = pool.size(); i < pool.size() && picked.size() < needed; i++, remaining--) {
+            if (random.nextInt(remaining) < needed - picked.size()) {
+                picked.add(pool.get(i));
+            }
+        }
+
+        // Randomize order within the (small) sample so days do not all start the same way
+        for (int i = picked.size() - 1; i > 0; i--) {
+            Collections.swap(picked, i, random.nextInt(i + 1));
+        }
+        return picked;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private List<String> getSourcesForFocusArea(String focusArea) {
+        switch (focusArea) {
+            case "CARDIO":
+                return Arrays.asList("CARDIO");
+            case "UPPER_BODY":
+                return Arrays.asList("CHEST", "BACK", "ARMS", "SHOULDERS");
+            case "LOWER_BODY":
+                return Arrays.asList("LEGS");
+            case "FULL_BODY":
+                return Arrays.asList("FULL_BODY", "CORE");
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    // CARDIO pools are built by category, every other focus area by muscle group
+    private boolean matches(String focusArea, String source, Exercise exercise) {
+        if ("CARDIO".equals(focusArea)) {
+            return source.equals(exercise.getCategory());
+        }
+        return source.equals(exercise.getMuscleGroup());
+    }
+
+    private boolean isUsable(Exercise exercise) {
+        return exercise != null &&
+                exercise.getName() != null && !exercise.getName().trim().isEmpty() &&
+                exercise.getDifficulty() != null;
+    }
+
+    private static String key(String focusArea, String difficulty) {
+        return focusArea.toUpperCase() + ":" + difficulty;
+    }
+
+    private static final class Snapshot {
+        private final Map<String, List<Exercise>> exact;
+        private final Map<String, List<Exercise>> withFallback;
+
+        private Snapshot(Map<String, List<Exercise>> exact, Map<String, List<Exercise>> withFallback) {
+            this.exact = exact;
+            this.withFallback = withFallback;
+        }
+    }
+}
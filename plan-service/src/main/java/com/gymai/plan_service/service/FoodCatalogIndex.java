@@ -0,0 +1,162 @@
+package com.gymai.plan_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.gymai.plan_service.entity.Food;
+import com.gymai.plan_service.repository.FoodRepository;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable, pre-partitioned view of the foods table used by diet generation.
+ *
+ * Foods are grouped by dietType -> mealType -> category once, and the whole
+ * snapshot is swapped atomically on refresh, so generation reads it without
+ * touching the database or building per-meal lists.
+ */
+@Service
+public class FoodCatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FoodCatalogIndex.class);
+
+    private static final List<Food> NONE = Collections.emptyList();
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    private volatile Snapshot snapshot;
+
+    // Rebuild the index from the foods table and publish it in one step
+    public synchronized void refresh() {
+        List<Food> foods = foodRepository.findAll();
+        foods.sort(Comparator.comparing(Food::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<String, Map<String, Map<String, List<Food>>>> byDietType = new HashMap<>();
+        int indexed = 0;
+        for (Food food : foods) {
+            if (!isUsable(food)) {
+                continue;
+            }
+            byDietType.computeIfAbsent(food.getDietType(), k -> new HashMap<>())
+                    .computeIfAbsent(food.getMealType(), k -> new HashMap<>())
+                    .computeIfAbsent(food.getCategory(), k -> new ArrayList<>())
+                    .add(food);
+            indexed++;
+        }
+
+        this.snapshot = new Snapshot(freeze(byDietType));
+        log.info("Food catalog index rebuilt with {} of {} foods", indexed, foods.size());
+    }
+
+    // True if any food exists for the given diet types and meal type
+    public boolean hasFoods(List<String> dietTypes, String mealType) {
+        Snapshot current = current();
+        for (String dietType : dietTypes) {
+            if (!current.mealTypes(dietType, mealType).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Random food across all diet types for the given meal type and categories
+    public Optional<Food> randomFood(List<String> dietTypes, String mealType, String... categories) {
+        Snapshot current = current();
+        int total = 0;
+        for (String dietType : dietTypes) {
+            for (String category : categories) {
+                total += current.foods(dietType, mealType, category).size();
+            }
+        }
+        if (total == 0) {
+            return Optional.empty();
+        }
+
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (String dietType : dietTypes) {
+            for (String category : categories) {
+                List<Food> foods = current.foods(dietType, mealType, category);
+                if (pick < foods.size()) {
+                    return Optional.of(foods.get(pick));
+                }
+                pick -= foods.size();
+            }
+        }
+        return Optional.empty();
+    }
+
+    // First food in catalog (id) order for the given meal type and categories
+    public Optional<Food> firstFood(List<String> dietTypes, String mealType, String... categories) {
+        Snapshot current = current();
+        Food first = null;
+        for (String dietType : dietTypes) {
+            for (String category : categories) {
+                List<Food> foods = current.foods(dietType, mealType, category);
+                if (!foods.isEmpty() && (first == null || isBefore(foods.get(0), first))) {
+                    first = foods.get(0);
+                }
+            }
+        }
+        return Optional.ofNullable(first);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private boolean isUsable(Food food) {
+        return food != null &&
+                food.getCaloriesPer100g() > 0 &&
+                food.getName() != null && !food.getName().trim().isEmpty() &&
+                food.getDietType() != null && food.getMealType() != null && food.getCategory() != null;
+    }
+
+    private boolean isBefore(Food a, Food b) {
+        if (a.getId() == null) {
+            return false;
+        }
+        return b.getId() == null || a.getId() < b.getId();
+    }
+
+    private Map<String, Map<String, Map<String, List<Food>>>> freeze(
+            Map<String, Map<String, Map<String, List<Food>>>> byDietType) {
+        Map<String, Map<String, Map<String, List<Food>>>> frozen = new HashMap<>();
+        byDietType.forEach((dietType, byMealType) -> {
+            Map<String, Map<String, List<Food>>> frozenMealTypes = new HashMap<>();
+            byMealType.forEach((mealType, byCategory) -> {
+                Map<String, List<Food>> frozenCategories = new HashMap<>();
+                byCategory.forEach((category, foods) -> frozenCategories.put(category, List.copyOf(foods)));
+                frozenMealTypes.put(mealType, Collections.unmodifiableMap(frozenCategories));
+            });
+            frozen.put(dietType, Collections.unmodifiableMap(frozenMealTypes));
+        });
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    private static final class Snapshot {
+        private final Map<String, Map<String, Map<String, List<Food>>>> foods;
+
+        private Snapshot(Map<String, Map<String, Map<String, List<Food>>>> foods) {
+            this.foods = foods;
+        }
+
+        private Map<String, List<Food>> mealTypes(String dietType, String mealType) {
+            Map<String, Map<String, List<Food>>> byMealType = foods.get(dietType);
+            if (byMealType == null) {
+                return Collections.emptyMap();
+            }
+            return byMealType.getOrDefault(mealType, Collections.emptyMap());
+        }
+
+        private List<Food> foods(String dietType, String mealType, String category) {
+            return mealTypes(dietType, mealType).getOrDefault(category, NONE);
+        }
+    }
+}
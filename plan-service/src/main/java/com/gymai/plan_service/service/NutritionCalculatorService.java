@@ -1,33 +1,28 @@
 package com.gymai.plan_service.service;
 
 import org.springframework.stereotype.Service;
+import com.gymai.plan_service.dto.NutritionAnalysis;
 import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.util.Tenths;
 import lombok.extern.slf4j.Slf4j;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Service
 @Slf4j
 public class NutritionCalculatorService {
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
-
     public NutritionalNeeds calculateNutritionalNeeds(User user) {
         log.info("Calculating nutritional needs for user: {}", user);
 
         double bmr = calculateBMR(user);
-        bmr = roundTo1Decimal(bmr);
+        bmr = Tenths.round(bmr);
         log.debug("Calculated BMR: {}", bmr);
 
         double tdee = calculateTDEE(bmr, user.getActivityLevel());
-        tdee = roundTo1Decimal(tdee);
+        tdee = Tenths.round(tdee);
         log.debug("Calculated TDEE (with activity level {}): {}", user.getActivityLevel(), tdee);
 
         double targetCalories = adjustCaloriesForGoal(tdee, user.getGoal());
-        targetCalories = roundTo1Decimal(targetCalories);
+        targetCalories = Tenths.round(targetCalories);
         log.info("Adjusted target calories for goal {}: {}", user.getGoal(), targetCalories);
 
         // Calculate macronutrient targets
@@ -41,6 +36,20 @@ public class NutritionCalculatorService {
                 macros.fat);
     }
 
+    // Daily targets plus BMR/TDEE, as returned to clients and cached per user
+    public NutritionAnalysis createNutritionAnalysis(User user) {
+        NutritionalNeeds needs = calculateNutritionalNeeds(user);
+        NutritionAnalysis nutritionAnalysis = new NutritionAnalysis();
+        nutritionAnalysis.setUserId(user.getUserId());
+        nutritionAnalysis.setDailyCalories(Tenths.round(needs.calories));
+        nutritionAnalysis.setDailyProtein(Tenths.round(needs.protein));
+        nutritionAnalysis.setDailyCarbs(Tenths.round(needs.carbs));
+        nutritionAnalysis.setDailyFat(Tenths.round(needs.fat));
+        nutritionAnalysis.setBmr(Tenths.round(calculateBMR(user)));
+        nutritionAnalysis.setTdee(Tenths.round(needs.calories));
+        return nutritionAnalysis;
+    }
+
     private double calculateBMR(User user) {
         // Mifflin-St Jeor Equation (most accurate widely used formula)
         if ("MALE".equalsIgnoreCase(user.getGender())) {
@@ -110,18 +119,18 @@ public class NutritionCalculatorService {
         }
 
         protein = proteinPerKg * user.getWeight();
-        protein = roundTo1Decimal(protein);
+        protein = Tenths.round(protein);
         double proteinCalories = protein * 4;
 
         // Fat: 25% of calories
         double fatCalories = calories * 0.25;
         fat = fatCalories / 9;
-        fat = roundTo1Decimal(fat);
+        fat = Tenths.round(fat);
 
         // Carbs = remaining calories
         double carbsCalories = calories - (proteinCalories + fatCalories);
         carbs = carbsCalories / 4;
-        carbs = roundTo1Decimal(carbs);
+        carbs = Tenths.round(carbs);
 
         return new MacroTargets(protein, carbs, fat);
     }
@@ -0,0 +1,238 @@
+package com.gymai.plan_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-node {@link CacheStore} that keeps values in direct (off-heap)
+ * buffers, so a large cache does not add to heap pressure. Only the index
+ * (key, expiry, buffer reference) lives on the heap. Entries expire by TTL,
+ * and once the indexed bytes reach {@code maxBytes} Caffeine evicts by its
+ * W-TinyLFU policy (frequency as well as recency, not strict LRU).
+ *
+ * {@code maxBytes} bounds what the index references, not the process: an
+ * evicted or replaced buffer is freed only when the GC collects it, so the
+ * real off-heap footprint can run above it and is capped by
+ * {@code -XX:MaxDirectMemorySize} (set in the Dockerfile).
+ *
+ * With a snapshot file configured, live entries and counters are written on
+ * shutdown and loaded again on startup.
+ */
+@Slf4j
+public class OffHeapCacheStore implements CacheStore, AutoCloseable {
+
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private final Cache<String, Slot> entries;
+  private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+  private final Path snapshotFile;
+  private final long maxBytes;
+
+  private record Slot(ByteBuffer data, long expiresAtMillis) {
+
+    byte[] bytes() {
+      byte[] bytes = new byte[data.remaining()];
+      data.duplicate().get(bytes);
+      return bytes;
+    }
+  }
+
+  public OffHeapCacheStore(long maxBytes, Path snapshotFile) {
+    this.entries = Caffeine.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher((String key, Slot slot) -> slot.data().capacity())
+        .expireAfter(new Expiry<String, Slot>() {
+          @Override
+          public long expireAfterCreate(String key, Slot slot, long currentTime) {
+            return remainingNanos(slot);
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, Slot slot, long currentTime, long currentDuration) {
+            return remainingNanos(slot);
+          }
+
+          @Override
+          public long expireAfterRead(String key, Slot slot, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .build();
+    this.snapshotFile = snapshotFile;
+    this.maxBytes = maxBytes;
+    load();
+  }
+
+  @Override
+  public byte[] get(String key) {
+    Slot slot = entries.getIfPresent(key);
+    return slot != null ? slot.bytes() : null;
+  }
+
+  @Override
+  public void set(String key, byte[] value, long ttlSeconds) {
+    put(key, value, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds));
+  }
+
+  @Override
+  public List<Entry> getWithTtl(List<String> keys) {
+    long now = System.currentTimeMillis();
+    List<Entry> result = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      Slot slot = entries.getIfPresent(key);
+      result.add(slot != null ? new Entry(slot.bytes(), Math.max(0, slot.expiresAtMillis() - now))
+          : new Entry(null, -2));
+    }
+    return result;
+  }
+
+  @Override
+  public long getCounter(String key) {
+    AtomicLong counter = counters.get(key);
+    return counter != null ? counter.get() : 0;
+  }
+
+  @Override
+  public void invalidate(List<String> keys, List<String> counterKeys, String notification) {
+    entries.invalidateAll(keys);
+    for (String counterKey : counterKeys) {
+      counters.computeIfAbsent(counterKey, k -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  @Override
+  public void notifyPeers(String notification) {
+    // Single node: there is nobody to notify
+  }
+
+  @Override
+  public void expire(Map<String, Long> ttlSeconds) {
+    long now = System.currentTimeMillis();
+    ttlSeconds.forEach((key, ttl) -> entries.asMap().computeIfPresent(key,
+        (k, slot) -> new Slot(slot.data(), now + TimeUnit.SECONDS.toMillis(ttl))));
+  }
+
+  @Override
+  public boolean ping() {
+    return true;
+  }
+
+  @Override
+  public void close() {
+    if (snapshotFile == null) {
+      return;
+    }
+
+    Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    long now = System.currentTimeMillis();
+    int written = 0;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(SNAPSHOT_VERSION);
+      out.writeInt(counters.size());
+      for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+        out.writeUTF(counter.getKey());
+        out.writeLong(counter.getValue().get());
+      }
+      for (Map.Entry<String, Slot> entry : entries.asMap().entrySet()) {
+        if (entry.getValue().expiresAtMillis() <= now) {
+          continue;
+        }
+        byte[] bytes = entry.getValue().bytes();
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue().expiresAtMillis());
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        written++;
+      }
+    } catch (IOException e) {
+      log.warn("Failed to write off-heap cache snapshot {} - {}", snapshotFile, e.getMessage());
+      return;
+    }
+
+    try {
+      Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      log.info("Wrote {} off-heap cache entries to {}", written, snapshotFile);
+    } catch (IOException e) {
+      log.warn("Failed to replace off-heap cache snapshot {} - {}", snapshotFile, e.getMessage());
+    }
+  }
+
+  private void load() {
+    if (snapshotFile == null || !Files.exists(snapshotFile)) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    int loaded = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+      if (in.readInt() != SNAPSHOT_VERSION) {
+        log.info("Ignoring off-heap cache snapshot {} from another version", snapshotFile);
+        return;
+      }
+      int counterCount = in.readInt();
+      for (int i = 0; i < counterCount; i++) {
+        counters.put(in.readUTF(), new AtomicLong(in.readLong()));
+      }
+      while (true) {
+        String key;
+        long expiresAt;
+        byte[] bytes;
+        try {
+          key = in.readUTF();
+          expiresAt = in.readLong();
+          int length = in.readInt();
+          if (length < 0 || length > maxBytes) {
+            throw new IOException("invalid entry length " + length);
+          }
+          bytes = new byte[length];
+          in.readFully(bytes);
+        } catch (EOFException end) {
+          // End of the snapshot, or an entry cut short by an interrupted write
+          break;
+        }
+        if (expiresAt > now) {
+          put(key, bytes, expiresAt);
+          loaded++;
+        }
+      }
+      log.info("Loaded {} off-heap cache entries from {}", loaded, snapshotFile);
+    } catch (IOException e) {
+      // A torn snapshot only costs warm entries; start with what was read
+      log.warn("Failed to read off-heap cache snapshot {} - {}", snapshotFile, e.getMessage());
+    }
+  }
+
+  // Bytes currently indexed, after pending evictions are applied
+  long weightedSize() {
+    entries.cleanUp();
+    return entries.policy().eviction().orElseThrow().weightedSize().orElse(0);
+  }
+
+  private void put(String key, byte[] value, long expiresAtMillis) {
+    ByteBuffer data = ByteBuffer.allocateDirect(value.length).put(value).flip();
+    entries.put(key, new Slot(data.asReadOnlyBuffer(), expiresAtMillis));
+  }
+
+  private static long remainingNanos(Slot slot) {
+    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, slot.expiresAtMillis() - System.currentTimeMillis()));
+  }
+}
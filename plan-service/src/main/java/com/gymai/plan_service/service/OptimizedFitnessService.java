@@ -8,7 +8,6 @@ import org.springframework.transaction.annotation.Transactional;
 import com.gymai.plan_service.dto.*;
 import com.gymai.plan_service.entity.User;
 import com.gymai.plan_service.mapper.*;
-import com.gymai.plan_service.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -17,7 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 public class OptimizedFitnessService {
 
   @Autowired
-  private UserRepository userRepository;
+  private UserLookupService userLookupService;
 
   @Autowired
   private DietPlanService dietPlanService;
@@ -31,16 +30,10 @@ public class OptimizedFitnessService {
   @Autowired
   private UserMapper userMapper;
 
-  @Autowired
-  private DietPlanMapper dietPlanMapper;
-
-  @Autowired
-  private WorkoutPlanMapper workoutPlanMapper;
-
   public UserProfileCheckDTO checkUserProfile(String email) {
     log.info("Checking user profile for email: {}", email);
 
-    Optional<User> userOpt = userRepository.findByEmail(email);
+    Optional<User> userOpt = userLookupService.findByEmail(email);
     if (!userOpt.isPresent()) {
       return UserProfileCheckDTO.notFound();
     }
@@ -58,7 +51,7 @@ public class OptimizedFitnessService {
   public OptimizedPlansResponseDTO getUserPlansOptimized(String email) {
     log.info("Fetching optimized plans for email: {}", email);
 
-    Optional<User> userOpt = userRepository.findByEmail(email);
+    Optional<User> userOpt = userLookupService.findByEmail(email);
     if (!userOpt.isPresent()) {
       throw new RuntimeException("User not found with email: " + email);
     }
@@ -70,15 +63,8 @@ public class OptimizedFitnessService {
     SimpleDietPlanDTO dietPlan = null;
     SimpleWorkoutPlanDTO workoutPlan = null;
 
-    var existingDietPlan = dietPlanService.getExistingDietPlan(user.getUserId());
-    if (existingDietPlan != null) {
-      dietPlan = dietPlanMapper.toDTO(existingDietPlan);
-    }
-
-    var existingWorkoutPlan = workoutPlanService.getExistingWorkoutPlan(user.getUserId());
-    if (existingWorkoutPlan != null) {
-      workoutPlan = workoutPlanMapper.toDTO(existingWorkoutPlan);
-    }
+    dietPlan = dietPlanService.getExistingDietPlanDTO(user.getUserId());
+    workoutPlan = workoutPlanService.getExistingWorkoutPlanDTO(user.getUserId());
 
     // Get nutrition analysis
     NutritionAnalysis nutritionAnalysis = null;
@@ -111,21 +97,17 @@ public class OptimizedFitnessService {
     // Create or update user
     User user = userMapper.toEntity(userProfile);
     if (user.getUserId() == null) {
-      Optional<User> existingUser = userRepository.findByEmail(email);
+      Optional<User> existingUser = userLookupService.findByEmailForWrite(email);
       if (existingUser.isPresent()) {
         user.setUserId(existingUser.get().getUserId());
       }
     }
     user.setEmail(email);
-    user = userRepository.save(user);
+    user = userLookupService.save(user);
 
     // Generate plans
-    var dietPlan = dietPlanService.regenerateDietPlan(user);
-    var workoutPlan = workoutPlanService.regenerateWorkoutPlan(user);
-
-    // Convert to DTOs
-    SimpleDietPlanDTO dietPlanDTO = dietPlanMapper.toDTO(dietPlan);
-    SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanMapper.toDTO(workoutPlan);
+    SimpleDietPlanDTO dietPlanDTO = dietPlanService.regenerateDietPlanDTO(user);
+    SimpleWorkoutPlanDTO workoutPlanDTO = workoutPlanService.regenerateWorkoutPlanDTO(user);
 
     // Get nutrition analysis
     var needs = nutritionCalculatorService.calculateNutritionalNeeds(user);
@@ -0,0 +1,289 @@
+package com.gymai.plan_service.service;
+
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
+import com.gymai.plan_service.entity.PlanSnapshot;
+import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.mapper.UserMapper;
+import com.gymai.plan_service.repository.PooledPlanRepository;
+import com.gymai.plan_service.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pre-generated plans for profile completion.
+ *
+ * Plans are bucketed by the inputs their generator actually reads (diet
+ * types and calorie band for diets, plan type and difficulty for workouts).
+ * Completing a profile claims the oldest pooled plan of the user's bucket
+ * and rescales it to the user, falling back to live generation when the
+ * bucket is empty. A background task keeps the most requested buckets
+ * topped up. Idle while template mode is on, which already shares plans.
+ */
+@Service
+@Slf4j
+public class PlanPoolService {
+
+  @Autowired
+  private DietPlanService dietPlanService;
+
+  @Autowired
+  private WorkoutPlanService workoutPlanService;
+
+  @Autowired
+  private PlanTemplateService planTemplateService;
+
+  @Autowired
+  private PooledPlanRepository pooledPlanRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserMapper userMapper;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.plan-pool.enabled:false}")
+  private boolean enabled;
+
+  // Plans kept ready per bucket
+  @Value("${app.plan-pool.target-per-bucket:3}")
+  private int targetPerBucket;
+
+  // Only the most requested buckets of each kind are kept filled
+  @Value("${app.plan-pool.max-buckets:50}")
+  private int maxBuckets;
+
+  @Value("${app.plan-pool.replenish-seconds:30}")
+  private long replenishSeconds;
+
+  // Recent profiles the bucket demand is seeded from at startup
+  @Value("${app.plan-pool.seed-users:1000}")
+  private int seedUsers;
+
+  // kind|bucket -> requests seen, with a profile to generate the bucket from
+  private final Map<String, Demand> demand = new ConcurrentHashMap<>();
+  private final AtomicBoolean replenishQueued = new AtomicBoolean();
+  private volatile ScheduledExecutorService replenishScheduler;
+
+  private final LongAdder dietHits = new LongAdder();
+  private final LongAdder dietMisses = new LongAdder();
+  private final LongAdder workoutHits = new LongAdder();
+  private final LongAdder workoutMisses = new LongAdder();
+
+  @PostConstruct
+  void init() {
+    if (isActive() && meterRegistry != null) {
+      registerMeters(PlanSnapshot.DIET, dietHits, dietMisses);
+      registerMeters(PlanSnapshot.WORKOUT, workoutHits, workoutMisses);
+    }
+  }
+
+  // Replenishing inserts plan rows, so it waits until startup (sequence
+  // alignment, warm-up) is over; claims before that simply miss
+  @EventListener(ApplicationReadyEvent.class)
+  void startReplenishing() {
+    if (!isActive()) {
+      return;
+    }
+
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofVirtual().name("plan-pool-replenish").factory());
+    scheduler.execute(this::seedDemand);
+    scheduler.scheduleWithFixedDelay(this::replenish, 0, replenishSeconds, TimeUnit.SECONDS);
+    replenishScheduler = scheduler;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (replenishScheduler != null) {
+      replenishScheduler.shutdownNow();
+    }
+  }
+
+  public SimpleDietPlanDTO claimOrRegenerateDietPlan(User user) {
+    if (!isActive()) {
+      return dietPlanService.regenerateDietPlanDTO(user);
+    }
+
+    recordDemand(PlanSnapshot.DIET, dietPlanService.poolBucket(user), user);
+    SimpleDietPlanDTO planDTO = null;
+    try {
+      planDTO = dietPlanService.claimPooledDietPlan(user);
+    } catch (RuntimeException e) {
+      log.warn("Claiming a pooled diet plan failed for userId={}: {}", user.getUserId(), e.getMessage());
+    }
+    requestReplenish();
+
+    if (planDTO != null) {
+      dietHits.increment();
+      return planDTO;
+    }
+    dietMisses.increment();
+    return dietPlanService.regenerateDietPlanDTO(user);
+  }
+
+  public SimpleWorkoutPlanDTO claimOrRegenerateWorkoutPlan(User user) {
+    if (!isActive()) {
+      return workoutPlanService.regenerateWorkoutPlanDTO(user);
+    }
+
+    recordDemand(PlanSnapshot.WORKOUT, workoutPlanService.poolBucket(user), user);
+    SimpleWorkoutPlanDTO planDTO = null;
+    try {
+      planDTO = workoutPlanService.claimPooledWorkoutPlan(user);
+    } catch (RuntimeException e) {
+      log.warn("Claiming a pooled workout plan failed for userId={}: {}", user.getUserId(), e.getMessage());
+    }
+    requestReplenish();
+
+    if (planDTO != null) {
+      workoutHits.increment();
+      return planDTO;
+    }
+    workoutMisses.increment();
+    return workoutPlanService.regenerateWorkoutPlanDTO(user);
+  }
+
+  private boolean isActive() {
+    return enabled && !planTemplateService.isEnabled();
+  }
+
+  private void recordDemand(String kind, String bucket, User user) {
+    demand.computeIfAbsent(kind + "|" + bucket, key -> new Demand(kind, sampleOf(user))).requests.increment();
+  }
+
+  // Runs the next replenish pass early; at most one is queued at a time
+  private void requestReplenish() {
+    ScheduledExecutorService scheduler = replenishScheduler;
+    if (scheduler != null && replenishQueued.compareAndSet(false, true)) {
+      scheduler.execute(this::replenish);
+    }
+  }
+
+  private void seedDemand() {
+    try {
+      List<User> recent = userRepository.findAll(
+          PageRequest.of(0, seedUsers, Sort.by(Sort.Direction.DESC, "userId"))).getContent();
+      int seeded = 0;
+      for (User user : recent) {
+        if (!userMapper.toDTO(user).isProfileComplete()) {
+          continue;
+        }
+        recordDemand(PlanSnapshot.DIET, dietPlanService.poolBucket(user), user);
+        recordDemand(PlanSnapshot.WORKOUT, workoutPlanService.poolBucket(user), user);
+        seeded++;
+      }
+      log.info("Plan pool demand seeded from {} profiles ({} buckets)", seeded, demand.size());
+    } catch (RuntimeException e) {
+      log.warn("Seeding plan pool demand failed: {}", e.getMessage());
+    }
+  }
+
+  private void replenish() {
+    replenishQueued.set(false);
+    try {
+      int dietAdded = topUp(PlanSnapshot.DIET, dietPlanService::createPooledDietPlan);
+      int workoutAdded = topUp(PlanSnapshot.WORKOUT, workoutPlanService::createPooledWorkoutPlan);
+      if (dietAdded + workoutAdded > 0) {
+        log.info("Plan pool replenished: {} diet, {} workout plans added; hit rate diet {}, workout {}",
+            dietAdded, workoutAdded, hitRatio(dietHits, dietMisses), hitRatio(workoutHits, workoutMisses));
+      }
+    } catch (RuntimeException e) {
+      log.warn("Plan pool replenish failed: {}", e.getMessage());
+    }
+  }
+
+  // Fills the most requested buckets of a kind up to the target, one plan per transaction
+  private int topUp(String kind, Consumer<User> createPooledPlan) {
+    List<Map.Entry<String, Demand>> buckets = demand.entrySet().stream()
+        .filter(entry -> entry.getValue().kind.equals(kind))
+        .sorted(Comparator.comparingLong((Map.Entry<String, Demand> entry) -> entry.getValue().requests.sum())
+            .reversed())
+        .limit(maxBuckets)
+        .toList();
+
+    int added = 0;
+    for (Map.Entry<String, Demand> entry : buckets) {
+      String bucket = entry.getKey().substring(kind.length() + 1);
+      long missing = targetPerBucket - pooledPlanRepository.countByPlanKindAndBucket(kind, bucket);
+      for (long i = 0; i < missing; i++) {
+        createPooledPlan.accept(entry.getValue().sample);
+        added++;
+      }
+    }
+    return added;
+  }
+
+  private void registerMeters(String kind, LongAdder hits, LongAdder misses) {
+    FunctionCounter.builder("plan.pool.claims", hits, LongAdder::doubleValue)
+        .description("Profile completions by whether a pooled plan was claimed")
+        .tag("kind", kind)
+        .tag("result", "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.pool.claims", misses, LongAdder::doubleValue)
+        .description("Profile completions by whether a pooled plan was claimed")
+        .tag("kind", kind)
+        .tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("plan.pool.hit.ratio", () -> hitRatio(hits, misses))
+        .tag("kind", kind)
+        .register(meterRegistry);
+    Gauge.builder("plan.pool.size", () -> pooledPlanRepository.countByPlanKind(kind))
+        .tag("kind", kind)
+        .register(meterRegistry);
+  }
+
+  private static double hitRatio(LongAdder hits, LongAdder misses) {
+    long claims = hits.sum() + misses.sum();
+    return claims == 0 ? 0.0 : (double) hits.sum() / claims;
+  }
+
+  // Only the generator inputs; the sample never gets an id or is saved
+  private static User sampleOf(User user) {
+    return User.builder()
+        .age(user.getAge())
+        .height(user.getHeight())
+        .weight(user.getWeight())
+        .gender(user.getGender())
+        .goal(user.getGoal())
+        .activityLevel(user.getActivityLevel())
+        .preference(user.getPreference())
+        .build();
+  }
+
+  private static final class Demand {
+    final String kind;
+    final User sample;
+    final LongAdder requests = new LongAdder();
+
+    Demand(String kind, User sample) {
+      this.kind = kind;
+      this.sample = sample;
+    }
+  }
+}
@@ -0,0 +1,259 @@
+package com.gymai.plan_service.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of plan loads/generation per key (e.g. one user's
+ * diet plan). Concurrent callers on this node share the in-flight result; with
+ * the Redis lease enabled, callers on other nodes wait for the lease holder
+ * and pick up its result instead of generating a second plan.
+ */
+@Service
+@Slf4j
+public class PlanRequestCoalescer {
+
+  private static final String LEASE_KEY = "lease:plan:";
+
+  // Release only our own lease, never one that expired and was taken over
+  private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+      Long.class);
+
+  @Autowired(required = false)
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.coalescing.lease.enabled:false}")
+  private boolean leaseEnabled;
+
+  @Value("${app.coalescing.lease.ttl-ms:30000}")
+  private long leaseTtlMs;
+
+  @Value("${app.coalescing.lease.poll-ms:100}")
+  private long pollMs;
+
+  @Value("${app.executor.plan.max-refreshes:2}")
+  private int maxRefreshes;
+
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+  private Semaphore refreshPermits;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final LongAdder executed = new LongAdder();
+  private final LongAdder coalescedLocal = new LongAdder();
+  private final LongAdder coalescedRemote = new LongAdder();
+  private final LongAdder leaseTimeouts = new LongAdder();
+  private final LongAdder refreshesStarted = new LongAdder();
+  private final LongAdder refreshesSkippedBusy = new LongAdder();
+  private final LongAdder refreshesSkippedSaturated = new LongAdder();
+
+  @PostConstruct
+  void registerMetrics() {
+    refreshPermits = new Semaphore(Math.max(1, maxRefreshes));
+    if (meterRegistry == null) {
+      return;
+    }
+
+    FunctionCounter.builder("plan.requests.executed", executed, LongAdder::doubleValue)
+        .description("Plan loads/generations actually run")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.requests.coalesced", coalescedLocal, LongAdder::doubleValue)
+        .description("Plan requests served by another request's in-flight work")
+        .tag("scope", "local")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.requests.coalesced", coalescedRemote, LongAdder::doubleValue)
+        .description("Plan requests served by another request's in-flight work")
+        .tag("scope", "remote")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.requests.lease.timeouts", leaseTimeouts, LongAdder::doubleValue)
+        .description("Waits for another node's lease that gave up and ran locally")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.refresh.started", refreshesStarted, LongAdder::doubleValue)
+        .description("Background refreshes of stale or hot cache entries")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.refresh.skipped", refreshesSkippedBusy, LongAdder::doubleValue)
+        .description("Background refreshes not started")
+        .tag("reason", "in-flight")
+        .register(meterRegistry);
+    FunctionCounter.builder("plan.refresh.skipped", refreshesSkippedSaturated, LongAdder::doubleValue)
+        .description("Background refreshes not started")
+        .tag("reason", "saturated")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Starts {@code work} on {@code executor} unless a refresh for the key is
+   * already running here (or, with the lease enabled, on another node), or the
+   * refresh budget is used up. Never blocks the caller; returns whether the
+   * work was submitted.
+   */
+  public boolean submitIfIdle(String key, Executor executor, Runnable work) {
+    if (!refreshing.add(key)) {
+      refreshesSkippedBusy.increment();
+      return false;
+    }
+    if (!refreshPermits.tryAcquire()) {
+      refreshing.remove(key);
+      refreshesSkippedSaturated.increment();
+      return false;
+    }
+
+    boolean useLease = leaseEnabled && stringRedisTemplate != null;
+    String leaseKey = LEASE_KEY + key;
+    if (useLease && !tryAcquire(leaseKey)) {
+      refreshPermits.release();
+      refreshing.remove(key);
+      refreshesSkippedBusy.increment();
+      return false;
+    }
+
+    Runnable cleanup = () -> {
+      if (useLease) {
+        release(leaseKey);
+      }
+      refreshPermits.release();
+      refreshing.remove(key);
+    };
+    try {
+      executor.execute(() -> {
+        try {
+          work.run();
+        } catch (RuntimeException e) {
+          log.warn("Background refresh failed for key: {} - {}", key, e.getMessage());
+        } finally {
+          cleanup.run();
+        }
+      });
+    } catch (RuntimeException e) {
+      cleanup.run();
+      log.warn("Could not start background refresh for key: {} - {}", key, e.getMessage());
+      return false;
+    }
+
+    refreshesStarted.increment();
+    return true;
+  }
+
+  /**
+   * Runs {@code work} once per key at a time. {@code recheck} is a cheap
+   * lookup used while another node holds the lease; it returns null until
+   * that node's result is visible.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> recheck, Supplier<T> work) {
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+    if (existing != null) {
+      coalescedLocal.increment();
+      log.debug("Joining in-flight plan request for key: {}", key);
+      return (T) join(existing);
+    }
+
+    try {
+      T result = executeWithLease(key, recheck, work);
+      mine.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  private <T> T executeWithLease(String key, Supplier<T> recheck, Supplier<T> work) {
+    if (!leaseEnabled || stringRedisTemplate == null) {
+      return run(work);
+    }
+
+    String leaseKey = LEASE_KEY + key;
+    long deadline = System.currentTimeMillis() + leaseTtlMs;
+    while (true) {
+      if (tryAcquire(leaseKey)) {
+        try {
+          return run(work);
+        } finally {
+          release(leaseKey);
+        }
+      }
+
+      try {
+        Thread.sleep(pollMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return run(work);
+      }
+
+      T ready = recheck.get();
+      if (ready != null) {
+        coalescedRemote.increment();
+        log.debug("Plan for key: {} produced by another node", key);
+        return ready;
+      }
+
+      if (System.currentTimeMillis() > deadline) {
+        leaseTimeouts.increment();
+        log.warn("Gave up waiting for plan lease on key: {} after {} ms", key, leaseTtlMs);
+        return run(work);
+      }
+    }
+  }
+
+  private <T> T run(Supplier<T> work) {
+    executed.increment();
+    return work.get();
+  }
+
+  private boolean tryAcquire(String leaseKey) {
+    try {
+      return Boolean.TRUE.equals(
+          stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, nodeId, Duration.ofMillis(leaseTtlMs)));
+    } catch (Exception e) {
+      // Without Redis we can only coalesce locally; never block the request
+      log.warn("Failed to acquire plan lease: {} - {}", leaseKey, e.getMessage());
+      return true;
+    }
+  }
+
+  private void release(String leaseKey) {
+    try {
+      stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(leaseKey), nodeId);
+    } catch (Exception e) {
+      log.warn("Failed to release plan lease: {} - {}", leaseKey, e.getMessage());
+    }
+  }
+
+  private Object join(CompletableFuture<Object> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
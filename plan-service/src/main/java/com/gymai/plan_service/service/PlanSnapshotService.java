@@ -0,0 +1,97 @@
+package com.gymai.plan_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
+import com.gymai.plan_service.entity.PlanSnapshot;
+import com.gymai.plan_service.repository.PlanSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Stores finished plan DTOs as one JSON document per user and plan version so
+ * cold reads skip the normalized plan graph entirely. Writes join the caller's
+ * transaction, so a snapshot commits (or rolls back) together with its plan.
+ */
+@Service
+@Slf4j
+@Transactional
+public class PlanSnapshotService {
+
+  @Autowired
+  private PlanSnapshotRepository planSnapshotRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  public void saveDietPlan(SimpleDietPlanDTO dietPlan) {
+    save(dietPlan.getUserId(), PlanSnapshot.DIET, dietPlan.getId(), dietPlan);
+  }
+
+  public void saveWorkoutPlan(SimpleWorkoutPlanDTO workoutPlan) {
+    save(workoutPlan.getUserId(), PlanSnapshot.WORKOUT, workoutPlan.getId(), workoutPlan);
+  }
+
+  @Transactional(readOnly = true)
+  public SimpleDietPlanDTO findDietPlan(Long userId) {
+    return find(userId, PlanSnapshot.DIET, SimpleDietPlanDTO.class);
+  }
+
+  @Transactional(readOnly = true)
+  public SimpleWorkoutPlanDTO findWorkoutPlan(Long userId) {
+    return find(userId, PlanSnapshot.WORKOUT, SimpleWorkoutPlanDTO.class);
+  }
+
+  public void deleteDietPlans(Long userId) {
+    planSnapshotRepository.deleteByUserIdAndPlanKind(userId, PlanSnapshot.DIET);
+  }
+
+  public void deleteWorkoutPlans(Long userId) {
+    planSnapshotRepository.deleteByUserIdAndPlanKind(userId, PlanSnapshot.WORKOUT);
+  }
+
+  private void save(Long userId, String planKind, Long planId, Object plan) {
+    if (userId == null || planId == null) {
+      log.warn("Skipping {} snapshot without userId/planId", planKind);
+      return;
+    }
+
+    String payload;
+    try {
+      payload = objectMapper.writeValueAsString(plan);
+    } catch (JsonProcessingException e) {
+      // Snapshots are a read optimization; never fail plan generation on serialization
+      log.warn("Failed to serialize {} snapshot for userId: {} - {}", planKind, userId, e.getMessage());
+      return;
+    }
+
+    // Only the latest version is served, so older snapshots are replaced. The
+    // insert tolerates a concurrent writer of the same version, so a racing
+    // read-path backfill never fails (and rolls back) the caller.
+    planSnapshotRepository.deleteOtherVersions(userId, planKind, planId);
+    planSnapshotRepository.insertIfAbsent(userId, planKind, planId, payload);
+    log.debug("Saved {} snapshot for userId: {} (planId: {}, {} chars)", planKind, userId, planId,
+        payload.length());
+  }
+
+  private <T> T find(Long userId, String planKind, Class<T> type) {
+    Optional<String> payload = planSnapshotRepository.findLatestPayload(userId, planKind);
+    if (!payload.isPresent()) {
+      return null;
+    }
+
+    try {
+      log.debug("Retrieved {} snapshot for userId: {}", planKind, userId);
+      return objectMapper.readValue(payload.get(), type);
+    } catch (JsonProcessingException e) {
+      // Unreadable snapshot (e.g. older DTO shape): fall back to the normalized tables
+      log.warn("Failed to read {} snapshot for userId: {} - {}", planKind, userId, e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package com.gymai.plan_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
+import com.gymai.plan_service.entity.PlanSnapshot;
+import com.gymai.plan_service.entity.UserPlanTemplate;
+import com.gymai.plan_service.repository.PlanTemplateRepository;
+import com.gymai.plan_service.repository.UserPlanTemplateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Template mode for plan storage. Users whose generator inputs fall into the
+ * same buckets share one generated plan, stored once under a hash of those
+ * inputs and a variety seed. Each user keeps a single reference row with a
+ * JSON merge patch of their own values, which is layered on top of the
+ * template on read. Storage and generation then grow with the number of
+ * distinct profiles instead of the number of users.
+ *
+ * Templates are immutable, so parsed payloads are kept in memory by id.
+ */
+@Service
+@Slf4j
+@Transactional
+public class PlanTemplateService {
+
+  // Set per user on read, never stored in a template
+  private static final List<String> PER_USER_FIELDS = List.of("id", "userId", "createdDate", "template");
+
+  @Autowired
+  private PlanTemplateRepository planTemplateRepository;
+
+  @Autowired
+  private UserPlanTemplateRepository userPlanTemplateRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${app.plan-templates.enabled:false}")
+  private boolean enabled;
+
+  @Value("${app.plan-templates.varieties:4}")
+  private int varieties;
+
+  @Value("${app.plan-templates.revision:1}")
+  private int revision;
+
+  @Value("${app.plan-templates.cache-size:2000}")
+  private long cacheSize;
+
+  private Cache<Long, JsonNode> templates;
+
+  @PostConstruct
+  void initTemplateCache() {
+    templates = Caffeine.newBuilder()
+        .maximumSize(cacheSize)
+        .build();
+  }
+
+  // New plans are generated as shared templates (reads work either way)
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // Random variety for a new plan; a regenerated plan never gets the one it replaces
+  @Transactional(readOnly = true)
+  public int nextVariety(Long userId, String planKind) {
+    if (varieties <= 1) {
+      return 0;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Optional<UserPlanTemplate> current = userPlanTemplateRepository.findLatest(userId, planKind);
+    if (current.isEmpty()) {
+      return random.nextInt(varieties);
+    }
+    return (current.get().getVariety() + 1 + random.nextInt(varieties - 1)) % varieties;
+  }
+
+  // SHA-256 (hex) over the plan kind, template revision, variety and quantized inputs
+  public String templateKey(String planKind, int variety, Object... inputs) {
+    StringBuilder material = new StringBuilder(planKind).append('|').append(revision).append('|').append(variety);
+    for (Object input : inputs) {
+      material.append('|').append(input);
+    }
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(material.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * Points the user's plan of this kind at the template with the given key,
+   * generating and storing the template first if nobody has yet, and returns
+   * the user's plan with the overrides applied. Replaces any previous
+   * reference; the caller removes other stored plans.
+   */
+  public <T> T assign(Long userId, String planKind, String templateKey, int variety, Class<T> type,
+      Supplier<T> generator, Map<String, Object> overrides) {
+    try {
+      Long templateId = planTemplateRepository.findIdByKey(planKind, templateKey).orElse(null);
+      if (templateId == null) {
+        templateId = createTemplate(planKind, templateKey, generator.get());
+      } else {
+        log.debug("Reusing {} template {} for userId: {}", planKind, templateId, userId);
+      }
+
+      String patch = overrides.isEmpty() ? null : objectMapper.writeValueAsString(overrides);
+      userPlanTemplateRepository.deleteByUserIdAndPlanKind(userId, planKind);
+      UserPlanTemplate reference = userPlanTemplateRepository.save(
+          new UserPlanTemplate(userId, planKind, templateId, variety, patch));
+      return materialize(reference, type);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Failed to store " + planKind + " plan template for userId: " + userId, e);
+    }
+  }
+
+  @Transactional(readOnly = true)
+  public SimpleDietPlanDTO findDietPlan(Long userId) {
+    return find(userId, PlanSnapshot.DIET, SimpleDietPlanDTO.class);
+  }
+
+  @Transactional(readOnly = true)
+  public SimpleWorkoutPlanDTO findWorkoutPlan(Long userId) {
+    return find(userId, PlanSnapshot.WORKOUT, SimpleWorkoutPlanDTO.class);
+  }
+
+  // Templates stay: other users may reference them, and their number is
+  // bounded by the input buckets
+  public void deleteDietPlans(Long userId) {
+    userPlanTemplateRepository.deleteByUserIdAndPlanKind(userId, PlanSnapshot.DIET);
+  }
+
+  public void deleteWorkoutPlans(Long userId) {
+    userPlanTemplateRepository.deleteByUserIdAndPlanKind(userId, PlanSnapshot.WORKOUT);
+  }
+
+  private Long createTemplate(String planKind, String templateKey, Object plan) throws JsonProcessingException {
+    ObjectNode payload = objectMapper.valueToTree(plan);
+    payload.remove(PER_USER_FIELDS);
+
+    int inserted = planTemplateRepository.insertIfAbsent(planKind, templateKey,
+        objectMapper.writeValueAsString(payload));
+    Long templateId = planTemplateRepository.findIdByKey(planKind, templateKey)
+        .orElseThrow(() -> new IllegalStateException("Plan template " + templateKey + " was not stored"));
+    if (inserted > 0) {
+      templates.put(templateId, payload);
+      log.info("Created {} template {} (key: {})", planKind, templateId, templateKey);
+    }
+    return templateId;
+  }
+
+  private <T> T find(Long userId, String planKind, Class<T> type) {
+    Optional<UserPlanTemplate> reference = userPlanTemplateRepository.findLatest(userId, planKind);
+    if (reference.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return materialize(reference.get(), type);
+    } catch (JsonProcessingException | IllegalStateException e) {
+      // Unreadable template: fall back to the other plan stores
+      log.warn("Failed to read {} template plan for userId: {} - {}", planKind, userId, e.getMessage());
+      return null;
+    }
+  }
+
+  // Template, then the user's merge patch, then the per-user identity fields
+  private <T> T materialize(UserPlanTemplate reference, Class<T> type) throws JsonProcessingException {
+    ObjectNode plan = template(reference.getTemplateId()).deepCopy();
+    if (reference.getOverrides() != null) {
+      mergePatch(plan, objectMapper.readTree(reference.getOverrides()));
+    }
+    plan.put("id", reference.getId());
+    plan.put("userId", reference.getUserId());
+    plan.put("template", true);
+    plan.set("createdDate", objectMapper.valueToTree(reference.getCreatedAt().toLocalDate()));
+    return objectMapper.treeToValue(plan, type);
+  }
+
+  // Shared parsed payload; callers must copy it before changing anything
+  private JsonNode template(Long templateId) throws JsonProcessingException {
+    JsonNode template = templates.getIfPresent(templateId);
+    if (template == null) {
+      String payload = planTemplateRepository.findPayloadById(templateId)
+          .orElseThrow(() -> new IllegalStateException("Plan template " + templateId + " not found"));
+      template = objectMapper.readTree(payload);
+      templates.put(templateId, template);
+    }
+    return template;
+  }
+
+  // RFC 7386: objects merge recursively, null removes a field, anything else replaces it
+  private static void mergePatch(ObjectNode target, JsonNode patch) {
+    for (Map.Entry<String, JsonNode> field : patch.properties()) {
+      JsonNode value = field.getValue();
+      if (value.isNull()) {
+        target.remove(field.getKey());
+      } else if (value.isObject() && target.get(field.getKey()) instanceof ObjectNode child) {
+        mergePatch(child, value);
+      } else {
+        target.set(field.getKey(), value);
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.gymai.plan_service.service;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CacheStore} on Redis. Multi-key operations are pipelined, and L1
+ * invalidations go to the other replicas over {@link CacheService#INVALIDATION_CHANNEL}.
+ */
+public class RedisCacheStore implements CacheStore {
+
+  private static final byte[] CHANNEL = CacheService.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+  private final RedisTemplate<String, byte[]> template;
+
+  public RedisCacheStore(RedisTemplate<String, byte[]> template) {
+    this.template = template;
+  }
+
+  @Override
+  public byte[] get(String key) {
+    return template.opsForValue().get(key);
+  }
+
+  @Override
+  public void set(String key, byte[] value, long ttlSeconds) {
+    template.opsForValue().set(key, value, ttlSeconds, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public List<Entry> getWithTtl(List<String> keys) {
+    byte[][] rawKeys = raw(keys);
+    List<Object> results = template.executePipelined((RedisCallback<Object>) connection -> {
+      connection.stringCommands().mGet(rawKeys);
+      for (byte[] rawKey : rawKeys) {
+        connection.keyCommands().pTtl(rawKey);
+      }
+      return null;
+    });
+
+    @SuppressWarnings("unchecked")
+    List<byte[]> values = (List<byte[]>) results.get(0);
+    List<Entry> entries = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      entries.add(new Entry(values.get(i), ((Number) results.get(i + 1)).longValue()));
+    }
+    return entries;
+  }
+
+  @Override
+  public long getCounter(String key) {
+    // Raw read: the counter is a plain INCR integer, not an encoded value
+    byte[] value = template.execute((RedisCallback<byte[]>) connection ->
+        connection.stringCommands().get(key.getBytes(StandardCharsets.UTF_8)));
+    return value != null ? Long.parseLong(new String(value, StandardCharsets.UTF_8)) : 0;
+  }
+
+  @Override
+  public void invalidate(List<String> keys, List<String> counters, String notification) {
+    template.executePipelined((RedisCallback<Object>) connection -> {
+      if (!keys.isEmpty()) {
+        connection.keyCommands().del(raw(keys));
+      }
+      for (String counter : counters) {
+        connection.stringCommands().incr(counter.getBytes(StandardCharsets.UTF_8));
+      }
+      if (notification != null) {
+        connection.publish(CHANNEL, notification.getBytes(StandardCharsets.UTF_8));
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void notifyPeers(String notification) {
+    template.execute((RedisCallback<Long>) connection ->
+        connection.publish(CHANNEL, notification.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Override
+  public void expire(Map<String, Long> ttlSeconds) {
+    template.executePipelined((RedisCallback<Object>) connection -> {
+      ttlSeconds.forEach((key, ttl) -> connection.keyCommands().expire(key.getBytes(StandardCharsets.UTF_8), ttl));
+      return null;
+    });
+  }
+
+  @Override
+  public boolean ping() {
+    return "PONG".equalsIgnoreCase(template.execute((RedisCallback<String>) RedisConnection::ping));
+  }
+
+  private static byte[][] raw(List<String> keys) {
+    return keys.stream().map(key -> key.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+  }
+}
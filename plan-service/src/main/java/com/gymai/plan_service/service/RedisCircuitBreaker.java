@@ -0,0 +1,119 @@
+package com.gymai.plan_service.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker for the cache's Redis calls. After enough consecutive
+ * failures it opens and callers skip Redis entirely (treating it as a cache
+ * miss); once the open period has passed a single probe call is let through
+ * (half-open) and its outcome closes or re-opens the circuit.
+ *
+ * Callers that get {@code true} from {@link #allowRequest()} must report the
+ * outcome through {@link #recordSuccess()} or {@link #recordFailure()}.
+ */
+@Component
+@Slf4j
+public class RedisCircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${cache.redis.circuit-breaker.failure-threshold:5}")
+  private int failureThreshold;
+
+  @Value("${cache.redis.circuit-breaker.open-ms:10000}")
+  private long openMs;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private volatile long openedAt;
+
+  private final LongAdder rejected = new LongAdder();
+  private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+
+  @PostConstruct
+  void registerMetrics() {
+    if (meterRegistry == null) {
+      return;
+    }
+
+    Gauge.builder("cache.redis.circuit.state", state, s -> s.get().ordinal())
+        .description("Redis circuit state: 0 closed, 1 open, 2 half-open")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.redis.circuit.rejected", rejected, LongAdder::doubleValue)
+        .description("Redis calls skipped because the circuit was open")
+        .register(meterRegistry);
+  }
+
+  public boolean allowRequest() {
+    State current = state.get();
+    if (current == State.CLOSED) {
+      return true;
+    }
+
+    // Exactly one caller gets to probe once the open period is over
+    if (current == State.OPEN && System.currentTimeMillis() - openedAt >= openMs
+        && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+      log.info("Redis circuit half-open - probing");
+      return true;
+    }
+
+    rejected.increment();
+    return false;
+  }
+
+  // Runs on the reporting thread whenever a success follows one or more
+  // failures, including the probe that closes the circuit
+  public void onRecovery(Runnable listener) {
+    recoveryListeners.add(listener);
+  }
+
+  public void recordSuccess() {
+    // Only the half-open probe closes the circuit; a slow call admitted
+    // before it opened must not cut the open period short
+    if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+      consecutiveFailures.set(0);
+      log.info("Redis circuit closed - cache back in use");
+      recoveryListeners.forEach(Runnable::run);
+    } else if (state.get() == State.CLOSED && consecutiveFailures.getAndSet(0) > 0) {
+      recoveryListeners.forEach(Runnable::run);
+    }
+  }
+
+  public void recordFailure() {
+    int failures = consecutiveFailures.incrementAndGet();
+    State current = state.get();
+    if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+      openedAt = System.currentTimeMillis();
+      if (state.compareAndSet(current, State.OPEN)) {
+        log.warn("Redis circuit open after {} consecutive failures - bypassing cache for {} ms", failures, openMs);
+      }
+    }
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  // When the circuit last opened, 0 if it never has
+  public long getOpenedAt() {
+    return openedAt;
+  }
+}
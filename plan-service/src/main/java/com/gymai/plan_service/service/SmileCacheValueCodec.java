@@ -0,0 +1,129 @@
+package com.gymai.plan_service.service;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary cache codec: Jackson Smile without default typing (the expected type
+ * comes from the caller), LZ4-compressed above a size threshold.
+ *
+ * Layout: one format byte, then either the Smile document ({@link #SMILE}) or
+ * the uncompressed length as an int followed by an LZ4 block
+ * ({@link #SMILE_LZ4}). Anything else is a legacy entry written by the JSON
+ * serializer and is decoded with it. Compressed entries are decoded with the
+ * bounds-checked decompressor, and their stored length is validated before
+ * anything is allocated, so a corrupt entry fails as unreadable.
+ */
+public class SmileCacheValueCodec implements CacheValueCodec {
+
+  static final byte SMILE = 1;
+  static final byte SMILE_LZ4 = 2;
+  // Far above any plan; a larger stored length means the entry is corrupt
+  static final int MAX_DECODED_LENGTH = 16 * 1024 * 1024;
+  // LZ4 cannot expand a block by more than this factor
+  private static final int MAX_LZ4_RATIO = 255;
+
+  private final ObjectMapper smileMapper;
+  private final RedisSerializer<Object> legacySerializer;
+  private final int compressionThreshold;
+  private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+  private final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+  public SmileCacheValueCodec(RedisSerializer<Object> legacySerializer, int compressionThreshold) {
+    SmileFactory smileFactory = new SmileFactory();
+    // Meal types, categories and food names repeat across the plan
+    smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+
+    // Same field-based shape as the JSON serializer, minus the type metadata
+    ObjectMapper mapper = new ObjectMapper(smileFactory);
+    mapper.setVisibility(mapper.getSerializationConfig().getDefaultVisibilityChecker()
+        .withFieldVisibility(JsonAutoDetect.Visibility.ANY)
+        .withGetterVisibility(JsonAutoDetect.Visibility.NONE)
+        .withSetterVisibility(JsonAutoDetect.Visibility.NONE)
+        .withCreatorVisibility(JsonAutoDetect.Visibility.NONE));
+    mapper.registerModule(new JavaTimeModule());
+    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    this.smileMapper = mapper;
+    this.legacySerializer = legacySerializer;
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  @Override
+  public byte[] encode(Object value) {
+    byte[] smile;
+    try {
+      smile = smileMapper.writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new SerializationException("Could not write Smile value", e);
+    }
+
+    if (smile.length >= compressionThreshold && smile.length <= MAX_DECODED_LENGTH) {
+      byte[] compressed = new byte[1 + Integer.BYTES + compressor.maxCompressedLength(smile.length)];
+      ByteBuffer.wrap(compressed).put(SMILE_LZ4).putInt(smile.length);
+      int length = compressor.compress(smile, 0, smile.length, compressed, 1 + Integer.BYTES);
+      // Keep the compressed form only when it actually saves space
+      if (1 + Integer.BYTES + length < smile.length) {
+        return Arrays.copyOf(compressed, 1 + Integer.BYTES + length);
+      }
+    }
+
+    byte[] encoded = new byte[smile.length + 1];
+    encoded[0] = SMILE;
+    System.arraycopy(smile, 0, encoded, 1, smile.length);
+    return encoded;
+  }
+
+  @Override
+  public <T> T decode(byte[] bytes, Class<T> type) {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+
+    try {
+      switch (bytes[0]) {
+        case SMILE:
+          return smileMapper.readValue(bytes, 1, bytes.length - 1, type);
+        case SMILE_LZ4:
+          return smileMapper.readValue(decompress(bytes), type);
+        default:
+          // Legacy JSON entry (starts with '{'); still readable until it expires
+          Object legacy = legacySerializer.deserialize(bytes);
+          return type.isInstance(legacy) ? type.cast(legacy) : null;
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new SerializationException("Could not decode cached " + type.getSimpleName(), e);
+    }
+  }
+
+  private byte[] decompress(byte[] bytes) {
+    int compressedLength = bytes.length - 1 - Integer.BYTES;
+    if (compressedLength <= 0) {
+      throw new SerializationException("Truncated LZ4 entry");
+    }
+    int length = ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt();
+    if (length < 0 || length > MAX_DECODED_LENGTH || length > (long) compressedLength * MAX_LZ4_RATIO) {
+      throw new SerializationException("Invalid LZ4 entry length " + length);
+    }
+
+    byte[] smile = new byte[length];
+    int decoded = decompressor.decompress(bytes, 1 + Integer.BYTES, compressedLength, smile, 0, length);
+    if (decoded != length) {
+      throw new SerializationException("LZ4 entry decoded to " + decoded + " bytes, expected " + length);
+    }
+    return smile;
+  }
+}
@@ -0,0 +1,307 @@
+package com.gymai.plan_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Email lookups that answer "no such user" without a database query.
+ *
+ * A Bloom filter of every known email rejects unknown ones outright (no
+ * false negatives); the few false positives and recently missed emails are
+ * remembered in a short-lived negative cache. The filter is built at startup,
+ * rebuilt periodically, and extended on every save, with other replicas told
+ * over Redis pub/sub.
+ *
+ * Pub/sub is fire-and-forget, so a replica can miss a registration and
+ * wrongly call a real user unknown. Write paths therefore always ask the
+ * database ({@link #findByEmailForWrite}), and while Redis is failing or has
+ * just recovered, filter and negative cache misses are confirmed against the
+ * database until a rebuild has rescanned the table.
+ */
+@Service
+@Slf4j
+public class UserLookupService {
+
+  public static final String REGISTRATION_CHANNEL = "users:registered";
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private CacheService cacheService;
+
+  @Autowired
+  private RedisCircuitBreaker circuitBreaker;
+
+  @Autowired(required = false)
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.user-lookup.bloom.expected-users:100000}")
+  private int expectedUsers;
+
+  @Value("${app.user-lookup.bloom.false-positive-rate:0.01}")
+  private double falsePositiveRate;
+
+  // Also heals replicas that missed a registration message
+  @Value("${app.user-lookup.bloom.rebuild-minutes:5}")
+  private long rebuildMinutes;
+
+  @Value("${app.user-lookup.negative-ttl-seconds:30}")
+  private long negativeTtlSeconds;
+
+  private final String nodeId = UUID.randomUUID().toString();
+
+  // Null until the first build finishes; lookups go to the database meanwhile
+  private volatile EmailBloomFilter knownEmails;
+  // Set while a rebuild scans the table so concurrent saves land in both
+  private volatile EmailBloomFilter rebuilding;
+  private Cache<String, Boolean> unknownEmails;
+  // Set when Redis recovers from failures, during which registration
+  // messages may have been dropped; cleared by the rebuild that follows
+  private final AtomicBoolean registrationsMayBeMissed = new AtomicBoolean();
+  private ScheduledExecutorService rebuildScheduler;
+
+  private final LongAdder bloomRejects = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder databaseLookups = new LongAdder();
+
+  @PostConstruct
+  void init() {
+    unknownEmails = Caffeine.newBuilder()
+        .maximumSize(expectedUsers)
+        .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+        .build();
+
+    rebuildScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("bloom-rebuild").factory());
+    rebuildScheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildMinutes, TimeUnit.MINUTES);
+    circuitBreaker.onRecovery(() -> {
+      if (registrationsMayBeMissed.compareAndSet(false, true)) {
+        rebuildScheduler.execute(this::rebuild);
+      }
+    });
+
+    if (meterRegistry != null) {
+      FunctionCounter.builder("user.lookups", bloomRejects, LongAdder::doubleValue)
+          .description("Email lookups by how they were answered")
+          .tag("source", "bloom")
+          .register(meterRegistry);
+      FunctionCounter.builder("user.lookups", negativeHits, LongAdder::doubleValue)
+          .description("Email lookups by how they were answered")
+          .tag("source", "negative-cache")
+          .register(meterRegistry);
+      FunctionCounter.builder("user.lookups", databaseLookups, LongAdder::doubleValue)
+          .description("Email lookups by how they were answered")
+          .tag("source", "database")
+          .register(meterRegistry);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    rebuildScheduler.shutdownNow();
+  }
+
+  public Optional<User> findByEmail(String email) {
+    if (email == null) {
+      return Optional.empty();
+    }
+
+    if (!peerRegistrationsMayBeMissed()) {
+      EmailBloomFilter filter = knownEmails;
+      if (filter != null && !filter.mightContain(email)) {
+        bloomRejects.increment();
+        return Optional.empty();
+      }
+      if (unknownEmails.getIfPresent(email) != null) {
+        negativeHits.increment();
+        return Optional.empty();
+      }
+    }
+
+    Optional<User> user = loadByEmail(email);
+    if (user.isEmpty()) {
+      unknownEmails.put(email, Boolean.TRUE);
+    }
+    return user;
+  }
+
+  // For lookups that decide between creating and updating a user, or that
+  // change one: a missed registration must not turn an existing user into a
+  // duplicate insert or a "not found"
+  public Optional<User> findByEmailForWrite(String email) {
+    if (email == null) {
+      return Optional.empty();
+    }
+    return loadByEmail(email);
+  }
+
+  private Optional<User> loadByEmail(String email) {
+    databaseLookups.increment();
+    Optional<User> user = userRepository.findByEmail(email);
+    // Heals a filter that missed this user's registration
+    user.ifPresent(found -> register(email));
+    return user;
+  }
+
+  private boolean peerRegistrationsMayBeMissed() {
+    return registrationsMayBeMissed.get() || circuitBreaker.getState() != RedisCircuitBreaker.State.CLOSED;
+  }
+
+  // Saves through the repository and makes the email known on every replica
+  // once the surrounding transaction (if any) has committed; earlier, a
+  // lookup could still miss the row and cache it as unknown
+  public User save(User user) {
+    User saved = userRepository.save(user);
+    String email = saved.getEmail();
+    cacheService.afterCommit(() -> {
+      register(email);
+      publishRegistration(email);
+    });
+    return saved;
+  }
+
+  // Called for every message on REGISTRATION_CHANNEL: "<nodeId>\n<email>"
+  public void onRegistrationMessage(String message) {
+    int separator = message.indexOf('\n');
+    if (separator < 0 || nodeId.equals(message.substring(0, separator))) {
+      return;
+    }
+    register(message.substring(separator + 1));
+  }
+
+  private void register(String email) {
+    if (email == null) {
+      return;
+    }
+
+    // rebuilding before knownEmails: a rebuild publishes its filter before
+    // clearing rebuilding, so one of the two reads sees the new filter
+    EmailBloomFilter next = rebuilding;
+    if (next != null) {
+      next.put(email);
+    }
+    EmailBloomFilter filter = knownEmails;
+    if (filter != null) {
+      filter.put(email);
+    }
+    unknownEmails.invalidate(email);
+  }
+
+  private void publishRegistration(String email) {
+    if (stringRedisTemplate == null || email == null) {
+      return;
+    }
+
+    try {
+      stringRedisTemplate.convertAndSend(REGISTRATION_CHANNEL, nodeId + "\n" + email);
+    } catch (Exception e) {
+      // Other replicas pick the email up on their next rebuild
+      log.warn("Failed to publish user registration - {}", e.getMessage());
+    }
+  }
+
+  void rebuild() {
+    // Registrations dropped before the scan are in the table it reads
+    registrationsMayBeMissed.set(false);
+    try {
+      // Saves from here on also go into the new filter, so none is lost
+      // between the scan and the swap
+      EmailBloomFilter next = new EmailBloomFilter(expectedUsers, falsePositiveRate);
+      rebuilding = next;
+      List<String> emails = userRepository.findAllEmails();
+      emails.forEach(next::put);
+      knownEmails = next;
+      log.info("Rebuilt known-email filter with {} users", emails.size());
+    } catch (Exception e) {
+      registrationsMayBeMissed.set(true);
+      log.warn("Failed to rebuild known-email filter - {}", e.getMessage());
+    } finally {
+      rebuilding = null;
+    }
+  }
+
+  /**
+   * Thread-safe Bloom filter over email strings, using double hashing of two
+   * 64-bit FNV-1a variants. Sized for the expected number of entries at the
+   * given false positive rate.
+   */
+  static final class EmailBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    EmailBloomFilter(int expectedEntries, double falsePositiveRate) {
+      long m = (long) Math.ceil(-Math.max(expectedEntries, 1) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.bitCount = Math.max(64, m);
+      this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(expectedEntries, 1) * Math.log(2)));
+      this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    void put(String value) {
+      long[] hashes = hashes(value);
+      for (int i = 0; i < hashCount; i++) {
+        long bit = index(hashes, i);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+          current = bits.get(word);
+        } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+      }
+    }
+
+    boolean mightContain(String value) {
+      long[] hashes = hashes(value);
+      for (int i = 0; i < hashCount; i++) {
+        long bit = index(hashes, i);
+        if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private long index(long[] hashes, int i) {
+      return Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+    }
+
+    private static long[] hashes(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      long h1 = 0xcbf29ce484222325L;
+      long h2 = 0x84222325cbf29ce4L;
+      for (byte b : bytes) {
+        h1 = (h1 ^ (b & 0xff)) * 0x100000001b3L;
+        h2 = (h2 ^ (b & 0xff)) * 0x9E3779B97F4A7C15L;
+      }
+      // Odd step so all positions are reachable
+      return new long[] { h1, h2 | 1 };
+    }
+  }
+}
@@ -4,18 +4,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.gymai.plan_service.entity.*;
 import com.gymai.plan_service.repository.*;
 import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
 import com.gymai.plan_service.mapper.WorkoutPlanMapper;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.gymai.plan_service.util.Tenths;
+import jakarta.persistence.Tuple;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 @Service
 @Transactional
@@ -24,24 +23,31 @@ public class WorkoutPlanService {
     private static final Logger log = LoggerFactory.getLogger(WorkoutPlanService.class);
 
     @Autowired
-    private ExerciseRepository exerciseRepository;
+    private ExerciseIndex exerciseIndex;
 
     @Autowired
     private WorkoutPlanRepository workoutPlanRepository;
 
+    @Autowired
+    private DayWorkoutPlanRepository dayWorkoutPlanRepository;
+
+    @Autowired
+    private WorkoutExerciseRepository workoutExerciseRepository;
+
     @Autowired
     private CacheService cacheService;
 
+    @Autowired
+    private PlanSnapshotService planSnapshotService;
+
     @Autowired
     private WorkoutPlanMapper workoutPlanMapper;
 
-    @PersistenceContext
-    private EntityManager entityManager;
+    @Autowired
+    private PlanTemplateService planTemplateService;
 
-    // Helper method to round to 1 decimal place
-    private double roundTo1Decimal(double value) {
-        return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
-    }
+    @Autowired
+    private PooledPlanRepository pooledPlanRepository;
 
     public WorkoutPlan generateCustomWorkoutPlan(User user) {
         log.info("Generating workout plan for userId={}, goal={}, activityLevel={}",
@@ -84,18 +90,93 @@ public class WorkoutPlanService {
         cacheService.invalidateUserPlansCache(user.getUserId());
 
         // Delete existing plan
-        List<WorkoutPlan> plans = workoutPlanRepository.findByUserId(user.getUserId());
-
-        for (WorkoutPlan plan : plans) {
-            workoutPlanRepository.delete(plan); // Hibernate cascades delete
-        }
-        log.info("Deleted {} workout plans for userId={}", plans.size(), user.getUserId());
-        entityManager.flush(); // Ensure deletion is committed
+        int deleted = deleteWorkoutPlansInBulk(user.getUserId());
+        log.info("Deleted {} workout plans for userId={}", deleted, user.getUserId());
 
         // Generate new plan
         return generateNewWorkoutPlan(user);
     }
 
+    // New plan as a DTO: a shared template in template mode, a stored plan otherwise
+    public SimpleWorkoutPlanDTO generateWorkoutPlanDTO(User user) {
+        if (!planTemplateService.isEnabled()) {
+            return workoutPlanMapper.toDTO(generateCustomWorkoutPlan(user));
+        }
+        validateUserInputs(user);
+        return assignWorkoutTemplate(user,
+                planTemplateService.nextVariety(user.getUserId(), PlanSnapshot.WORKOUT));
+    }
+
+    @Transactional
+    @CacheEvict(value = "workout-plans", key = "#user.userId")
+    public SimpleWorkoutPlanDTO regenerateWorkoutPlanDTO(User user) {
+        if (!planTemplateService.isEnabled()) {
+            return workoutPlanMapper.toDTO(regenerateWorkoutPlan(user));
+        }
+
+        log.info("Regenerating workout plan from a template for userId={}", user.getUserId());
+        validateUserInputs(user);
+        cacheService.invalidateUserPlansCache(user.getUserId());
+
+        // Pick the variety before the current reference is deleted
+        int variety = planTemplateService.nextVariety(user.getUserId(), PlanSnapshot.WORKOUT);
+        int deleted = deleteWorkoutPlansInBulk(user.getUserId());
+        log.info("Deleted {} workout plans for userId={}", deleted, user.getUserId());
+
+        return assignWorkoutTemplate(user, variety);
+    }
+
+    // Plan pool bucket of a profile: plan type and difficulty, the only inputs
+    // workout generation reads
+    public String poolBucket(User user) {
+        return determinePlanType(user.getGoal()) + "|" + determineDifficulty(user.getActivityLevel());
+    }
+
+    // Generates an unowned plan for the profile's bucket and adds it to the plan pool
+    @Transactional
+    public void createPooledWorkoutPlan(User sample) {
+        WorkoutPlan workoutPlan = buildWorkoutPlan(sample);
+        workoutPlan.setUserId(PooledPlan.UNCLAIMED_USER_ID);
+        workoutPlan = workoutPlanRepository.save(workoutPlan);
+        pooledPlanRepository.save(new PooledPlan(PlanSnapshot.WORKOUT, poolBucket(sample), workoutPlan.getId()));
+        log.debug("Added workout plan {} to pool bucket {}", workoutPlan.getId(), poolBucket(sample));
+    }
+
+    // Claims the oldest pooled plan of the user's bucket in one transaction:
+    // the user's previous plans are deleted and the pooled plan is handed
+    // over. Workouts do not depend on body metrics, so nothing is rescaled.
+    // Returns null when the bucket is empty.
+    @Transactional
+    public SimpleWorkoutPlanDTO claimPooledWorkoutPlan(User user) {
+        validateUserInputs(user);
+        List<PooledPlan> claimable = pooledPlanRepository.findClaimable(PlanSnapshot.WORKOUT, poolBucket(user),
+                PageRequest.of(0, 1));
+        if (claimable.isEmpty()) {
+            return null;
+        }
+        Long entryId = claimable.get(0).getId();
+        Long planId = claimable.get(0).getPlanId();
+
+        cacheService.invalidateUserPlansCache(user.getUserId());
+        int deleted = deleteWorkoutPlansInBulk(user.getUserId());
+        pooledPlanRepository.deleteClaimed(entryId);
+
+        if (workoutPlanRepository.assignToUser(planId, user.getUserId(), LocalDate.now()) == 0) {
+            // Dangling entry; it is dropped and the caller generates instead
+            log.warn("Pooled workout plan {} no longer exists", planId);
+            return null;
+        }
+
+        // Snapshot the DTO in this transaction; cache it (not the entity) once committed
+        SimpleWorkoutPlanDTO planDTO = findWorkoutPlanDTO(user.getUserId());
+        planSnapshotService.saveWorkoutPlan(planDTO);
+        cacheService.afterCommit(() -> cacheService.cacheWorkoutPlan(user.getUserId(), planDTO));
+
+        log.info("Claimed pooled workout plan {} for userId={} ({} old plans deleted)", planId, user.getUserId(),
+                deleted);
+        return planDTO;
+    }
+
     @Transactional(readOnly = true)
     public WorkoutPlan getExistingWorkoutPlan(Long userId) {
         log.info("Fetching existing workout plan for userId={}", userId);
@@ -109,49 +190,58 @@ public class WorkoutPlanService {
         return getExistingWorkoutPlanSafe(userId);
     }
 
-    @Transactional(readOnly = true)
-    private WorkoutPlan getExistingWorkoutPlanSafe(Long userId) {
-        // Step 1: Get basic workout plan
-        List<WorkoutPlan> plans = workoutPlanRepository.findByUserIdOrderByCreatedDateDesc(userId);
-        if (plans.isEmpty()) {
+    // Plan DTO for reads: served from the snapshot store or a template reference,
+    // falling back to (and backfilling from) the normalized tables for plans
+    // generated before snapshots
+    public SimpleWorkoutPlanDTO getExistingWorkoutPlanDTO(Long userId) {
+        SimpleWorkoutPlanDTO snapshot = planSnapshotService.findWorkoutPlan(userId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        SimpleWorkoutPlanDTO templatePlan = planTemplateService.findWorkoutPlan(userId);
+        if (templatePlan != null) {
+            return templatePlan;
+        }
+
+        SimpleWorkoutPlanDTO planDTO = findWorkoutPlanDTO(userId);
+        if (planDTO == null) {
             return null;
         }
 
-        WorkoutPlan workoutPlan = plans.get(0);
+        planSnapshotService.saveWorkoutPlan(planDTO);
+        return planDTO;
+    }
 
-        // Step 2: Manually load day workout plans
-        List<DayWorkoutPlan> dayWorkoutPlans = entityManager.createQuery(
-                "SELECT dwp FROM DayWorkoutPlan dwp WHERE dwp.workoutPlan.id = :planId ORDER BY dwp.dayNumber",
-                DayWorkoutPlan.class)
-                .setParameter("planId", workoutPlan.getId())
-                .getResultList();
-
-        // Step 3: Load workout exercises for each day plan
-        for (DayWorkoutPlan dayPlan : dayWorkoutPlans) {
-            List<WorkoutExercise> exercises = entityManager.createQuery(
-                    "SELECT we FROM WorkoutExercise we JOIN FETCH we.exercise WHERE we.dayWorkoutPlan.id = :dayPlanId",
-                    WorkoutExercise.class)
-                    .setParameter("dayPlanId", dayPlan.getId())
-                    .getResultList();
-
-            dayPlan.getExercises().clear();
-            dayPlan.getExercises().addAll(exercises);
-
-            // Set back references
-            for (WorkoutExercise exercise : exercises) {
-                exercise.setDayWorkoutPlan(dayPlan);
-            }
+    // Latest plan as a DTO straight from scalar projections: two queries, no
+    // managed entities, so no persistence context, dirty checking or
+    // recomputed entity totals
+    public SimpleWorkoutPlanDTO findWorkoutPlanDTO(Long userId) {
+        List<Tuple> plans = workoutPlanRepository.findPlanRowsByUserId(userId, PageRequest.of(0, 1));
+        if (plans.isEmpty()) {
+            return null;
         }
 
-        workoutPlan.getWeeklyPlan().clear();
-        workoutPlan.getWeeklyPlan().addAll(dayWorkoutPlans);
+        Tuple plan = plans.get(0);
+        return workoutPlanMapper.toDTO(plan,
+                dayWorkoutPlanRepository.findExerciseRowsByWorkoutPlanId(plan.get("id", Long.class)));
+    }
 
-        // Set back references
-        for (DayWorkoutPlan dayPlan : dayWorkoutPlans) {
-            dayPlan.setWorkoutPlan(workoutPlan);
+    @Transactional(readOnly = true)
+    private WorkoutPlan getExistingWorkoutPlanSafe(Long userId) {
+        // Step 1: Get latest workout plan with its day workout plans
+        List<WorkoutPlan> plans = workoutPlanRepository.findWithWeeklyPlanByUserId(userId);
+        if (plans.isEmpty()) {
+            return null;
         }
 
-        log.debug("Successfully loaded workout plan with {} daily plans", dayWorkoutPlans.size());
+        WorkoutPlan workoutPlan = plans.get(0);
+
+        // Step 2: Load exercises for every day in one query; the days are already
+        // managed, so their exercise collections are initialized in place
+        dayWorkoutPlanRepository.findWithExercisesByWorkoutPlanId(workoutPlan.getId());
+
+        log.debug("Successfully loaded workout plan with {} daily plans", workoutPlan.getWeeklyPlan().size());
         return workoutPlan;
     }
 
@@ -162,19 +252,62 @@ public class WorkoutPlanService {
 
         cacheService.invalidateUserPlansCache(userId);
 
-        List<WorkoutPlan> plans = workoutPlanRepository.findByUserId(userId);
+        int deleted = deleteWorkoutPlansInBulk(userId);
+        // Drop anything a concurrent read re-cached before this transaction committed
+        cacheService.afterCommit(() -> cacheService.invalidateUserPlansCache(userId));
+        log.info("Deleted {} workout plans for userId={}", deleted, userId);
+    }
 
-        for (WorkoutPlan plan : plans) {
-            workoutPlanRepository.delete(plan); // Hibernate cascades delete
-        }
-        log.info("Deleted {} workout plans for userId={}", plans.size(), userId);
+    // Set-based delete of all of a user's workout plans, child tables first,
+    // without loading the plan graph; returns the number of plans removed
+    private int deleteWorkoutPlansInBulk(Long userId) {
+        workoutExerciseRepository.deleteByWorkoutPlanUserId(userId);
+        dayWorkoutPlanRepository.deleteByWorkoutPlanUserId(userId);
+        planSnapshotService.deleteWorkoutPlans(userId);
+        planTemplateService.deleteWorkoutPlans(userId);
+        return workoutPlanRepository.deleteAllByUserId(userId);
     }
 
     @Transactional
     private WorkoutPlan generateNewWorkoutPlan(User user) {
-        WorkoutPlan workoutPlan = new WorkoutPlan();
+        WorkoutPlan workoutPlan = buildWorkoutPlan(user);
         workoutPlan.setUserId(user.getUserId());
 
+        // Persist the complete graph once; ids come from the pooled sequences and
+        // the inserts are flushed as ordered JDBC batches at commit
+        workoutPlan = workoutPlanRepository.save(workoutPlan);
+
+        // Snapshot the DTO in this transaction; cache it (not the entity) once committed
+        SimpleWorkoutPlanDTO planDTO = workoutPlanMapper.toDTO(workoutPlan);
+        planSnapshotService.saveWorkoutPlan(planDTO);
+        cacheService.afterCommit(() -> cacheService.cacheWorkoutPlan(user.getUserId(), planDTO));
+
+        log.info("Completed workout plan generation and cached for userId={} with planId={}",
+                user.getUserId(), workoutPlan.getId());
+        return workoutPlan;
+    }
+
+    // The workout only depends on the plan type (from the goal) and the
+    // difficulty (from the activity level), so nothing is overridden per user
+    private SimpleWorkoutPlanDTO assignWorkoutTemplate(User user, int variety) {
+        String planType = determinePlanType(user.getGoal());
+        String difficulty = determineDifficulty(user.getActivityLevel());
+        String templateKey = planTemplateService.templateKey(PlanSnapshot.WORKOUT, variety, planType, difficulty);
+
+        SimpleWorkoutPlanDTO planDTO = planTemplateService.assign(user.getUserId(), PlanSnapshot.WORKOUT,
+                templateKey, variety, SimpleWorkoutPlanDTO.class,
+                () -> workoutPlanMapper.toDTO(buildWorkoutPlan(user)), Map.of());
+        cacheService.afterCommit(() -> cacheService.cacheWorkoutPlan(user.getUserId(), planDTO));
+
+        log.info("Assigned workout template ({}, {}, variety {}) to userId={} as planId={}",
+                planType, difficulty, variety, user.getUserId(), planDTO.getId());
+        return planDTO;
+    }
+
+    // Unsaved 7-day plan graph (without a user) for the user's goal and activity level
+    private WorkoutPlan buildWorkoutPlan(User user) {
+        WorkoutPlan workoutPlan = new WorkoutPlan();
+
         // Determine plan type
         String planType = determinePlanType(user.getGoal());
         workoutPlan.setPlanType(planType);
@@ -185,9 +318,6 @@ public class WorkoutPlanService {
         workoutPlan.setDifficultyLevel(difficulty);
         log.debug("Determined difficulty={} for userId={}", difficulty, user.getUserId());
 
-        // Save workout plan first to get ID
-        workoutPlan = workoutPlanRepository.save(workoutPlan);
-
         // Validate that we have exercises available
         validateExerciseAvailability(planType, difficulty);
 
@@ -206,16 +336,6 @@ public class WorkoutPlanService {
         }
 
         workoutPlan.setWeeklyPlan(weeklyPlan);
-
-        // Save the complete plan with cascaded entities
-        workoutPlan = workoutPlanRepository.save(workoutPlan);
-
-        // Cache the DTO result (not the entity)
-        SimpleWorkoutPlanDTO planDTO = workoutPlanMapper.toDTO(workoutPlan);
-        cacheService.cacheWorkoutPlan(user.getUserId(), planDTO);
-
-        log.info("Completed workout plan generation and cached for userId={} with planId={}",
-                user.getUserId(), workoutPlan.getId());
         return workoutPlan;
     }
 
@@ -240,8 +360,7 @@ public class WorkoutPlanService {
         // Check if we have exercises for the required focus areas
         List<String> requiredFocusAreas = getRequiredFocusAreasForPlanType(planType);
         for (String focusArea : requiredFocusAreas) {
-            List<Exercise> exercises = getExercisesForFocusAreaValidation(focusArea, difficulty);
-            if (exercises.isEmpty()) {
+            if (!exerciseIndex.hasExercises(focusArea, difficulty)) {
                 log.warn("No exercises found for focusArea={}, difficulty={}. Plan quality may be reduced.",
                         focusArea, difficulty);
             }
@@ -261,34 +380,6 @@ public class WorkoutPlanService {
         }
     }
 
-    private List<Exercise> getExercisesForFocusAreaValidation(String focusArea, String difficulty) {
-        List<Exercise> exercises = new ArrayList<>();
-
-        switch (focusArea.toUpperCase()) {
-            case "CARDIO":
-                exercises.addAll(exerciseRepository.findByCategoryAndDifficulty("CARDIO", difficulty));
-                break;
-            case "UPPER_BODY":
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("CHEST", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("BACK", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("ARMS", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("SHOULDERS", difficulty));
-                break;
-            case "LOWER_BODY":
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("LEGS", difficulty));
-                break;
-            case "FULL_BODY":
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("FULL_BODY", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("CORE", difficulty));
-                break;
-        }
-
-        return exercises.stream()
-                .filter(exercise -> exercise != null &&
-                        exercise.getName() != null && !exercise.getName().trim().isEmpty())
-                .collect(Collectors.toList());
-    }
-
     private String determinePlanType(String goal) {
         if (goal == null || goal.trim().isEmpty()) {
             return "MIXED";
@@ -358,7 +449,7 @@ public class WorkoutPlanService {
 
         DayWorkoutPlan dayPlan = new DayWorkoutPlan(dayNumber, dayName, focusArea);
 
-        // Get exercises for focus area (with caching)
+        // Get exercises for focus area (from the exercise index)
         List<Exercise> exercises = getExercisesForFocusArea(focusArea, planType, difficulty);
         log.debug("Fetched {} exercises for focusArea={} (difficulty={})",
                 exercises.size(), focusArea, difficulty);
@@ -441,62 +532,14 @@ public class WorkoutPlanService {
         return "FULL_BODY"; // fallback
     }
 
-    @SuppressWarnings("unchecked")
     private List<Exercise> getExercisesForFocusArea(String focusArea, String planType, String difficulty) {
-        // Check cache first
-        Object cachedExercises = cacheService.getCachedExercisesByFocus(focusArea, difficulty);
-        if (cachedExercises instanceof List) {
-            log.debug("Retrieved exercises from cache for focusArea={}, difficulty={}", focusArea, difficulty);
-            List<Exercise> exercises = (List<Exercise>) cachedExercises;
-            // Shuffle and limit to avoid repetitive plans
-            Collections.shuffle(exercises);
-            return exercises.stream()
-                    .filter(ex -> ex != null && ex.getName() != null && !ex.getName().trim().isEmpty())
-                    .limit(6)
-                    .collect(Collectors.toList());
-        }
-
-        List<Exercise> exercises = new ArrayList<>();
-
-        switch (focusArea.toUpperCase()) {
-            case "CARDIO":
-                exercises.addAll(exerciseRepository.findByCategoryAndDifficulty("CARDIO", difficulty));
-                break;
-            case "UPPER_BODY":
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("CHEST", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("BACK", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("ARMS", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("SHOULDERS", difficulty));
-                break;
-            case "LOWER_BODY":
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("LEGS", difficulty));
-                break;
-            case "FULL_BODY":
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("FULL_BODY", difficulty));
-                exercises.addAll(exerciseRepository.findByMuscleGroupAndDifficulty("CORE", difficulty));
-                break;
-        }
-
-        // Filter out invalid exercises
-        exercises = exercises.stream()
-                .filter(exercise -> exercise != null &&
-                        exercise.getName() != null && !exercise.getName().trim().isEmpty())
-                .collect(Collectors.toList());
-
-        // If no exercises found for specific difficulty, try with beginner difficulty
-        // as fallback
-        if (exercises.isEmpty() && !"BEGINNER".equals(difficulty)) {
-            log.warn("No exercises found for focusArea={}, difficulty={}. Trying with BEGINNER difficulty as fallback.",
+        // Sample from the precomputed pool (BEGINNER fallback already applied)
+        List<Exercise> exercises = exerciseIndex.sample(focusArea, difficulty, 6);
+        if (exercises.isEmpty()) {
+            log.warn("No exercises found for focusArea={}, difficulty={} (including BEGINNER fallback)",
                     focusArea, difficulty);
-            return getExercisesForFocusArea(focusArea, planType, "BEGINNER");
         }
-
-        // Cache the result before shuffling
-        cacheService.cacheExercisesByFocus(focusArea, difficulty, new ArrayList<>(exercises));
-
-        // Shuffle and limit to avoid repetitive plans
-        Collections.shuffle(exercises);
-        return exercises.stream().limit(6).collect(Collectors.toList());
+        return exercises;
     }
 
     private WorkoutExercise createWorkoutExercise(Exercise exercise, String planType, String difficulty) {
@@ -520,7 +563,7 @@ public class WorkoutPlanService {
         log.trace("Created workoutExercise: exercise={}, sets={}, reps={}, duration={}, weight={}, rest={}",
                 exercise.getName(), sets, reps, duration, weight, rest);
 
-        return new WorkoutExercise(exercise, sets, reps, duration, roundTo1Decimal(weight), rest);
+        return new WorkoutExercise(exercise, sets, reps, duration, Tenths.round(weight), rest);
     }
 
     private double getDefaultWeightForExercise(Exercise exercise, String difficulty) {
@@ -553,13 +596,13 @@ public class WorkoutPlanService {
         // Adjust based on difficulty
         switch (difficulty.toUpperCase()) {
             case "BEGINNER":
-                return roundTo1Decimal(baseWeight * 0.7);
+                return Tenths.round(baseWeight * 0.7);
             case "INTERMEDIATE":
-                return roundTo1Decimal(baseWeight);
+                return Tenths.round(baseWeight);
             case "ADVANCED":
-                return roundTo1Decimal(baseWeight * 1.5);
+                return Tenths.round(baseWeight * 1.5);
             default:
-                return roundTo1Decimal(baseWeight);
+                return Tenths.round(baseWeight);
         }
     }
 
@@ -0,0 +1,67 @@
+package com.gymai.plan_service.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Fixed-point nutrition values: grams and kcal as integer tenths.
+ *
+ * {@link #of(double)} rounds half-up exactly like
+ * {@code new BigDecimal(value).setScale(1, RoundingMode.HALF_UP)} (the exact
+ * binary value decides, so 0.15 rounds down), but without allocating. Sums
+ * are added as integer tenths, which gives the same result as rounding the
+ * double sum of already rounded values.
+ */
+public final class Tenths {
+
+  // Above this, value * 10 no longer has a fractional part to round
+  private static final double EXACT_LIMIT = 1e14;
+
+  private Tenths() {
+  }
+
+  // 12.34 -> 123, 0.25 -> 3, -0.25 -> -3
+  public static long of(double value) {
+    if (!Double.isFinite(value)) {
+      throw new NumberFormatException("Infinite or NaN");
+    }
+
+    double magnitude = Math.abs(value);
+    if (magnitude >= EXACT_LIMIT) {
+      return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // magnitude * 10 == scaled + error exactly; the fraction is compared with
+    // one half without ever rounding it
+    double scaled = magnitude * 10.0;
+    double error = Math.fma(magnitude, 10.0, -scaled);
+    double floor = Math.floor(scaled);
+    double fromHalf = scaled - floor - 0.5;
+    long tenths = (long) floor;
+    if (fromHalf >= -error) {
+      tenths++;
+    }
+    return value < 0 ? -tenths : tenths;
+  }
+
+  // Nearest double, as BigDecimal#doubleValue returns it (zero is never -0.0)
+  public static double toDouble(long tenths) {
+    return tenths == 0 ? 0.0 : tenths / 10.0;
+  }
+
+  // Drop-in for new BigDecimal(value).setScale(1, HALF_UP).doubleValue()
+  public static double round(double value) {
+    return toDouble(of(value));
+  }
+
+  // Rounded sum of the rounded values, in tenths
+  public static <T> long sum(List<T> items, ToDoubleFunction<? super T> value) {
+    long total = 0;
+    for (int i = 0, size = items.size(); i < size; i++) {
+      total += of(value.applyAsDouble(items.get(i)));
+    }
+    return total;
+  }
+}
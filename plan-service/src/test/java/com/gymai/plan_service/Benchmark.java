@@ -0,0 +1,19 @@
+package com.gymai.plan_service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Marks an opt-in benchmark: it only runs with {@code mvn test -Dbenchmark=true}
+ * and reports figures through {@link BenchmarkHarness}. Correctness checks
+ * belong in the ungated tests next to it.
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@interface Benchmark {
+}
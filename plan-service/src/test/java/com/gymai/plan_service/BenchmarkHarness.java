@@ -0,0 +1,40 @@
+package com.gymai.plan_service;
+
+import java.util.function.Supplier;
+
+/**
+ * Timing loop shared by the {@link Benchmark} classes: warm up, time the mean
+ * cost of one call, print one aligned line per variant.
+ */
+final class BenchmarkHarness {
+
+	// Every result is stored here so the JIT cannot drop the measured work
+	private static volatile Object sink;
+
+	private BenchmarkHarness() {
+	}
+
+	static void warmUp(int iterations, Supplier<?> work) {
+		for (int i = 0; i < iterations; i++) {
+			sink = work.get();
+		}
+	}
+
+	// Mean nanoseconds per call
+	static double time(int iterations, Supplier<?> work) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink = work.get();
+		}
+		return (double) (System.nanoTime() - start) / iterations;
+	}
+
+	static double measure(int warmup, int iterations, Supplier<?> work) {
+		warmUp(warmup, work);
+		return time(iterations, work);
+	}
+
+	static void report(String label, String figures, Object... args) {
+		System.out.println(String.format("%-45s ", label) + String.format(figures, args));
+	}
+}
@@ -0,0 +1,53 @@
+package com.gymai.plan_service;
+
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import com.gymai.plan_service.config.RedisConfig;
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
+import com.gymai.plan_service.service.SmileCacheValueCodec;
+
+/**
+ * Bytes per cache entry and encode/decode latency of the legacy JSON
+ * serializer against the Smile codec, for the full-size plans
+ * {@link SmileCacheValueCodecTests} round-trips. Needs no database or Redis.
+ */
+@Benchmark
+class CacheValueCodecBenchmarkTests {
+
+	private static final int WARMUP = 2_000;
+	private static final int ITERATIONS = 10_000;
+
+	private final GenericJackson2JsonRedisSerializer json = new RedisConfig().jsonRedisSerializer();
+	private final SmileCacheValueCodec smile = new SmileCacheValueCodec(json, Integer.MAX_VALUE);
+	private final SmileCacheValueCodec smileLz4 = new SmileCacheValueCodec(json, 1024);
+
+	@Test
+	void dietPlan() {
+		compare("diet plan", SmileCacheValueCodecTests.sampleDietPlan(), SimpleDietPlanDTO.class);
+	}
+
+	@Test
+	void workoutPlan() {
+		compare("workout plan", SmileCacheValueCodecTests.sampleWorkoutPlan(), SimpleWorkoutPlanDTO.class);
+	}
+
+	private <T> void compare(String label, T plan, Class<T> type) {
+		report(label + " (json, default typing)", plan, json::serialize, bytes -> type.cast(json.deserialize(bytes)));
+		report(label + " (smile)", plan, smile::encode, bytes -> smile.decode(bytes, type));
+		report(label + " (smile + lz4)", plan, smileLz4::encode, bytes -> smileLz4.decode(bytes, type));
+	}
+
+	private <T> void report(String label, T plan, Function<T, byte[]> encode, Function<byte[], T> decode) {
+		byte[] bytes = encode.apply(plan);
+		BenchmarkHarness.warmUp(WARMUP, () -> decode.apply(encode.apply(plan)));
+		double encodeNanos = BenchmarkHarness.time(ITERATIONS, () -> encode.apply(plan));
+		double decodeNanos = BenchmarkHarness.time(ITERATIONS, () -> decode.apply(bytes));
+
+		BenchmarkHarness.report(label, "%7d bytes %8.1f us/encode %8.1f us/decode", bytes.length,
+				encodeNanos / 1_000.0, decodeNanos / 1_000.0);
+	}
+}
@@ -0,0 +1,45 @@
+package com.gymai.plan_service;
+
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.entity.DietPlan;
+import com.gymai.plan_service.mapper.DietPlanMapper;
+
+/**
+ * Latency of {@link DietPlanMapper#toDTO(DietPlan)} with the previous
+ * recompute-on-every-getter totals against the cached totals, for a full
+ * 7-day plan. The "before" figure replays the sums the old getters did.
+ * Needs no database.
+ */
+@Benchmark
+class DietPlanMapperBenchmarkTests {
+
+	private static final int WARMUP = 2_000;
+	private static final int ITERATIONS = 10_000;
+
+	private final DietPlanMapper dietPlanMapper = new DietPlanMapper();
+
+	@Test
+	void dietPlanToDto() {
+		report("toDTO (recompute per getter, before)", plan -> DietPlanMapperTests.legacyToDTO(dietPlanMapper, plan));
+
+		// Each iteration maps a new graph, so every total is summed exactly once;
+		// the cost of building the graph is subtracted
+		double fresh = BenchmarkHarness.measure(WARMUP, ITERATIONS,
+				() -> dietPlanMapper.toDTO(DietPlanMapperTests.samplePlan()));
+		double build = BenchmarkHarness.measure(WARMUP, ITERATIONS, DietPlanMapperTests::samplePlan);
+		BenchmarkHarness.report("toDTO (fresh plan, totals summed once)", "%8.1f us/plan",
+				Math.max(0, fresh - build) / 1_000.0);
+
+		report("toDTO (cached totals)", dietPlanMapper::toDTO);
+	}
+
+	private void report(String label, Function<DietPlan, SimpleDietPlanDTO> mapping) {
+		DietPlan plan = DietPlanMapperTests.samplePlan();
+		double nanos = BenchmarkHarness.measure(WARMUP, ITERATIONS, () -> mapping.apply(plan));
+		BenchmarkHarness.report(label, "%8.1f us/plan", nanos / 1_000.0);
+	}
+}
@@ -0,0 +1,79 @@
+package com.gymai.plan_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.entity.DayMealPlan;
+import com.gymai.plan_service.entity.DietPlan;
+import com.gymai.plan_service.entity.Food;
+import com.gymai.plan_service.entity.FoodItem;
+import com.gymai.plan_service.entity.Meal;
+import com.gymai.plan_service.mapper.DietPlanMapper;
+
+/**
+ * {@link DietPlanMapper#toDTO(DietPlan)} with cached meal and day totals must
+ * produce exactly the DTO the previous recompute-on-every-getter totals did.
+ */
+class DietPlanMapperTests {
+
+	private static final List<String> MEAL_TYPES = List.of("BREAKFAST", "LUNCH", "DINNER", "SNACK");
+	private static final int NUTRITION_GETTERS = 4;
+
+	private final DietPlanMapper dietPlanMapper = new DietPlanMapper();
+
+	@Test
+	void cachedTotalsMatchRecomputedTotals() {
+		assertEquals(legacyToDTO(dietPlanMapper, samplePlan()), dietPlanMapper.toDTO(samplePlan()));
+	}
+
+	// Previous getters: each meal total re-summed its items, and each day
+	// total re-summed its meals through those same getters
+	static SimpleDietPlanDTO legacyToDTO(DietPlanMapper dietPlanMapper, DietPlan plan) {
+		for (DayMealPlan day : plan.getDailyPlans()) {
+			for (int dayGetter = 0; dayGetter < NUTRITION_GETTERS; dayGetter++) {
+				for (Meal meal : day.getMeals()) {
+					for (int mealGetter = 0; mealGetter < NUTRITION_GETTERS; mealGetter++) {
+						meal.calculateTotals();
+					}
+				}
+				day.calculateDailyTotals();
+			}
+			for (Meal meal : day.getMeals()) {
+				for (int mealGetter = 0; mealGetter < NUTRITION_GETTERS; mealGetter++) {
+					meal.calculateTotals();
+				}
+			}
+		}
+		return dietPlanMapper.toDTO(plan);
+	}
+
+	// A full 7-day plan: 4 meals a day, 3 items a meal
+	static DietPlan samplePlan() {
+		DietPlan plan = new DietPlan();
+		plan.setId(1L);
+		plan.setUserId(42L);
+		plan.setDailyCalorieTarget(2450.0);
+		plan.setDailyProteinTarget(150.3);
+		plan.setDailyCarbsTarget(275.6);
+		plan.setDailyFatTarget(81.7);
+
+		for (int day = 1; day <= 7; day++) {
+			DayMealPlan dayPlan = new DayMealPlan(day, "Day " + day);
+			for (String mealType : MEAL_TYPES) {
+				Meal meal = new Meal(mealType);
+				for (int item = 0; item < 3; item++) {
+					Food food = new Food("Food " + item, 120.0 + item * 37.3, 8.1 + item, 20.4 - item, 3.3 + item,
+							2.2, "NON_VEG", mealType, "PROTEIN");
+					meal.addFoodItem(new FoodItem(food, 85.0 + day * 7.5 + item * 12.25));
+				}
+				dayPlan.addMeal(meal);
+			}
+			plan.addDayMealPlan(dayPlan);
+		}
+		return plan;
+	}
+}
@@ -0,0 +1,173 @@
+package com.gymai.plan_service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gymai.plan_service.entity.DayMealPlan;
+import com.gymai.plan_service.entity.DietPlan;
+import com.gymai.plan_service.entity.FoodItem;
+import com.gymai.plan_service.entity.Meal;
+import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.mapper.DietPlanMapper;
+import com.gymai.plan_service.mapper.WorkoutPlanMapper;
+import com.gymai.plan_service.repository.UserRepository;
+import com.gymai.plan_service.service.DietPlanService;
+import com.gymai.plan_service.service.WorkoutPlanService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Compares statement counts and latency of the plan read path against the
+ * previous per-day/per-meal loading, and reports database round trips per
+ * generated plan. Needs the same database as the other Spring Boot tests;
+ * {@link PlanReadPathTests} checks that the paths return the same DTOs.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Benchmark
+class PlanReadPathBenchmarkTests {
+
+	private static final int WARMUP = 20;
+	private static final int ITERATIONS = 200;
+	private static final int GENERATIONS = 20;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private DietPlanService dietPlanService;
+
+	@Autowired
+	private WorkoutPlanService workoutPlanService;
+
+	@Autowired
+	private DietPlanMapper dietPlanMapper;
+
+	@Autowired
+	private WorkoutPlanMapper workoutPlanMapper;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private User user;
+
+	@BeforeEach
+	void createUserWithPlans() {
+		user = PlanReadPathTests.createUserWithPlans(userRepository, dietPlanService, workoutPlanService);
+	}
+
+	@AfterEach
+	void deleteUserWithPlans() {
+		PlanReadPathTests.deleteUserWithPlans(user, userRepository, dietPlanService, workoutPlanService);
+	}
+
+	@Test
+	void dietPlanReadPath() {
+		report("diet plan (per-day/per-meal queries)", () -> loadDietPlanPerRow(user.getUserId()));
+		report("diet plan (set-based queries)", () -> dietPlanService.getExistingDietPlan(user.getUserId()));
+		report("diet plan (entities + mapper)",
+				() -> dietPlanMapper.toDTO(dietPlanService.getExistingDietPlan(user.getUserId())));
+		report("diet plan (DTO projection)", () -> dietPlanService.findDietPlanDTO(user.getUserId()));
+		report("diet plan (snapshot)", () -> dietPlanService.getExistingDietPlanDTO(user.getUserId()));
+	}
+
+	@Test
+	void workoutPlanReadPath() {
+		report("workout plan (set-based queries)", () -> workoutPlanService.getExistingWorkoutPlan(user.getUserId()));
+		report("workout plan (entities + mapper)",
+				() -> workoutPlanMapper.toDTO(workoutPlanService.getExistingWorkoutPlan(user.getUserId())));
+		report("workout plan (DTO projection)", () -> workoutPlanService.findWorkoutPlanDTO(user.getUserId()));
+		report("workout plan (snapshot)", () -> workoutPlanService.getExistingWorkoutPlanDTO(user.getUserId()));
+	}
+
+	@Test
+	void planGenerationRoundTrips() {
+		reportGeneration("diet plan generation",
+				() -> dietPlanService.deleteUserDietPlans(user.getUserId()),
+				() -> dietPlanService.generateCustomDietPlan(user));
+		reportGeneration("workout plan generation",
+				() -> workoutPlanService.deleteUserWorkoutPlans(user.getUserId()),
+				() -> workoutPlanService.generateCustomWorkoutPlan(user));
+	}
+
+	// With IDENTITY ids every entity insert was its own round trip, so the
+	// insert count is the "before" figure and the statement count the "after"
+	private void reportGeneration(String label, Runnable reset, Runnable generate) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		long inserts = 0;
+		long statements = 0;
+		long elapsed = 0;
+		for (int i = 0; i < GENERATIONS; i++) {
+			reset.run();
+			statistics.clear();
+			long start = System.nanoTime();
+			generate.run();
+			elapsed += System.nanoTime() - start;
+			inserts += statistics.getEntityInsertCount();
+			statements += statistics.getPrepareStatementCount();
+		}
+
+		BenchmarkHarness.report(label, "%6.1f inserts/plan %6.1f statements/plan %8.3f ms/plan",
+				(double) inserts / GENERATIONS, (double) statements / GENERATIONS,
+				elapsed / 1_000_000.0 / GENERATIONS);
+	}
+
+	private void report(String label, Supplier<?> readPath) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		BenchmarkHarness.warmUp(WARMUP, readPath);
+		statistics.clear();
+		double nanos = BenchmarkHarness.time(ITERATIONS, readPath);
+
+		BenchmarkHarness.report(label, "%6.1f statements/read %8.3f ms/read",
+				(double) statistics.getPrepareStatementCount() / ITERATIONS, nanos / 1_000_000.0);
+	}
+
+	// Previous read path: one query for the days, one per day, one per meal
+	private List<DayMealPlan> loadDietPlanPerRow(Long userId) {
+		return transactionTemplate.execute(status -> {
+			List<DietPlan> plans = entityManager.createQuery(
+					"SELECT dp FROM DietPlan dp WHERE dp.userId = :userId ORDER BY dp.createdDate DESC", DietPlan.class)
+					.setParameter("userId", userId)
+					.getResultList();
+			if (plans.isEmpty()) {
+				return List.of();
+			}
+
+			List<DayMealPlan> days = entityManager.createQuery(
+					"SELECT dmp FROM DayMealPlan dmp WHERE dmp.dietPlan.id = :planId ORDER BY dmp.dayNumber",
+					DayMealPlan.class)
+					.setParameter("planId", plans.get(0).getId())
+					.getResultList();
+			for (DayMealPlan day : days) {
+				List<Meal> meals = entityManager.createQuery(
+						"SELECT m FROM Meal m WHERE m.dayMealPlan.id = :dayPlanId ORDER BY m.mealType", Meal.class)
+						.setParameter("dayPlanId", day.getId())
+						.getResultList();
+				for (Meal meal : meals) {
+					entityManager.createQuery(
+							"SELECT fi FROM FoodItem fi JOIN FETCH fi.food WHERE fi.meal.id = :mealId", FoodItem.class)
+							.setParameter("mealId", meal.getId())
+							.getResultList();
+				}
+			}
+			return days;
+		});
+	}
+}
@@ -0,0 +1,81 @@
+package com.gymai.plan_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.mapper.DietPlanMapper;
+import com.gymai.plan_service.mapper.WorkoutPlanMapper;
+import com.gymai.plan_service.repository.UserRepository;
+import com.gymai.plan_service.service.DietPlanService;
+import com.gymai.plan_service.service.WorkoutPlanService;
+
+/**
+ * The scalar-projection read path must produce exactly the DTOs the entity
+ * graph and mappers do. Needs the same database as the other Spring Boot
+ * tests.
+ */
+@SpringBootTest
+class PlanReadPathTests {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private DietPlanService dietPlanService;
+
+	@Autowired
+	private WorkoutPlanService workoutPlanService;
+
+	@Autowired
+	private DietPlanMapper dietPlanMapper;
+
+	@Autowired
+	private WorkoutPlanMapper workoutPlanMapper;
+
+	private User user;
+
+	@BeforeEach
+	void createUserWithPlans() {
+		user = createUserWithPlans(userRepository, dietPlanService, workoutPlanService);
+	}
+
+	@AfterEach
+	void deleteUserWithPlans() {
+		deleteUserWithPlans(user, userRepository, dietPlanService, workoutPlanService);
+	}
+
+	@Test
+	void projectionMatchesEntityMapping() {
+		assertEquals(dietPlanMapper.toDTO(dietPlanService.getExistingDietPlan(user.getUserId())),
+				dietPlanService.findDietPlanDTO(user.getUserId()));
+		assertEquals(workoutPlanMapper.toDTO(workoutPlanService.getExistingWorkoutPlan(user.getUserId())),
+				workoutPlanService.findWorkoutPlanDTO(user.getUserId()));
+	}
+
+	static User createUserWithPlans(UserRepository userRepository, DietPlanService dietPlanService,
+			WorkoutPlanService workoutPlanService) {
+		User user = userRepository.save(User.builder()
+				.name("Test User")
+				.email("read-path-" + System.nanoTime() + "@gymai.test")
+				.age(30).height(175.0).weight(75.0)
+				.gender("MALE").goal("MAINTENANCE")
+				.activityLevel("MODERATELY_ACTIVE").preference("NON_VEG")
+				.build());
+		dietPlanService.generateCustomDietPlan(user);
+		workoutPlanService.generateCustomWorkoutPlan(user);
+		return user;
+	}
+
+	static void deleteUserWithPlans(User user, UserRepository userRepository, DietPlanService dietPlanService,
+			WorkoutPlanService workoutPlanService) {
+		dietPlanService.deleteUserDietPlans(user.getUserId());
+		workoutPlanService.deleteUserWorkoutPlans(user.getUserId());
+		userRepository.delete(user);
+	}
+}
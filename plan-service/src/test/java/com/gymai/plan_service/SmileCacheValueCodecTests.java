@@ -0,0 +1,104 @@
+package com.gymai.plan_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.gymai.plan_service.config.RedisConfig;
+import com.gymai.plan_service.dto.SimpleDayMealPlanDTO;
+import com.gymai.plan_service.dto.SimpleDayWorkoutPlanDTO;
+import com.gymai.plan_service.dto.SimpleDietPlanDTO;
+import com.gymai.plan_service.dto.SimpleFoodItemDTO;
+import com.gymai.plan_service.dto.SimpleMealDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutExerciseDTO;
+import com.gymai.plan_service.dto.SimpleWorkoutPlanDTO;
+import com.gymai.plan_service.service.SmileCacheValueCodec;
+
+/**
+ * Round trips of full-size plans through {@link SmileCacheValueCodec}, with
+ * and without LZ4, reading entries written by the legacy JSON serializer, and
+ * rejecting corrupt compressed entries.
+ */
+class SmileCacheValueCodecTests {
+
+	private final GenericJackson2JsonRedisSerializer json = new RedisConfig().jsonRedisSerializer();
+	private final SmileCacheValueCodec smile = new SmileCacheValueCodec(json, Integer.MAX_VALUE);
+	private final SmileCacheValueCodec smileLz4 = new SmileCacheValueCodec(json, 1024);
+
+	@Test
+	void plansRoundTrip() {
+		SimpleDietPlanDTO dietPlan = sampleDietPlan();
+		SimpleWorkoutPlanDTO workoutPlan = sampleWorkoutPlan();
+
+		assertEquals(dietPlan, smile.decode(smile.encode(dietPlan), SimpleDietPlanDTO.class));
+		assertEquals(dietPlan, smileLz4.decode(smileLz4.encode(dietPlan), SimpleDietPlanDTO.class));
+		assertEquals(workoutPlan, smile.decode(smile.encode(workoutPlan), SimpleWorkoutPlanDTO.class));
+		assertEquals(workoutPlan, smileLz4.decode(smileLz4.encode(workoutPlan), SimpleWorkoutPlanDTO.class));
+	}
+
+	@Test
+	void readsLegacyJsonEntries() {
+		assertEquals(sampleDietPlan(), smileLz4.decode(json.serialize(sampleDietPlan()), SimpleDietPlanDTO.class));
+		assertEquals(sampleWorkoutPlan(),
+				smileLz4.decode(json.serialize(sampleWorkoutPlan()), SimpleWorkoutPlanDTO.class));
+	}
+
+	@Test
+	void rejectsCorruptCompressedEntries() {
+		byte[] encoded = smileLz4.encode(sampleDietPlan());
+
+		byte[] hugeLength = encoded.clone();
+		ByteBuffer.wrap(hugeLength, 1, Integer.BYTES).putInt(Integer.MAX_VALUE - 8);
+		assertThrows(SerializationException.class, () -> smileLz4.decode(hugeLength, SimpleDietPlanDTO.class));
+
+		byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+		assertThrows(SerializationException.class, () -> smileLz4.decode(truncated, SimpleDietPlanDTO.class));
+	}
+
+	// 7 days x 4 meals x 4 items, the shape DietPlanService produces
+	static SimpleDietPlanDTO sampleDietPlan() {
+		String[] mealTypes = { "BREAKFAST", "LUNCH", "DINNER", "SNACK" };
+		String[][] foods = { { "Oats", "GRAINS" }, { "Chicken Breast", "PROTEIN" },
+				{ "Broccoli", "VEGETABLES" }, { "Banana", "FRUITS" } };
+
+		List<SimpleDayMealPlanDTO> days = new ArrayList<>();
+		for (int day = 1; day <= 7; day++) {
+			List<SimpleMealDTO> meals = new ArrayList<>();
+			for (String mealType : mealTypes) {
+				List<SimpleFoodItemDTO> items = new ArrayList<>();
+				for (String[] food : foods) {
+					items.add(new SimpleFoodItemDTO(food[0], food[1], 150.0, 210.5, 12.3, 30.1, 4.2, 3.1));
+				}
+				meals.add(new SimpleMealDTO(mealType, 842.0, 49.2, 120.4, 16.8, items));
+			}
+			days.add(new SimpleDayMealPlanDTO(day, "Day " + day, 2450.0, 180.5, 260.2, 75.3, meals));
+		}
+		return new SimpleDietPlanDTO(42L, 7L, 2450.0, 180.5, 260.2, 75.3, LocalDate.of(2025, 1, 6), days, false);
+	}
+
+	// 5 training days x 6 exercises plus 2 rest days
+	static SimpleWorkoutPlanDTO sampleWorkoutPlan() {
+		List<SimpleDayWorkoutPlanDTO> days = new ArrayList<>();
+		for (int day = 1; day <= 7; day++) {
+			boolean restDay = day == 3 || day == 7;
+			List<SimpleWorkoutExerciseDTO> exercises = new ArrayList<>();
+			for (int i = 0; !restDay && i < 6; i++) {
+				exercises.add(new SimpleWorkoutExerciseDTO("Barbell Squat " + i, "STRENGTH", "LEGS", "BARBELL",
+						"INTERMEDIATE", "Compound lower body movement",
+						"Keep your back straight and push through the heels", 4, 10, 0, 60.0, 90, 45.0, 6.5));
+			}
+			days.add(new SimpleDayWorkoutPlanDTO(day, "Day " + day, restDay ? "REST" : "LOWER_BODY", restDay,
+					restDay ? 0 : 60, restDay ? 0 : 270.0, exercises));
+		}
+		return new SimpleWorkoutPlanDTO(43L, 7L, "MUSCLE_GAIN", "INTERMEDIATE", LocalDate.of(2025, 1, 6), days, false);
+	}
+}
@@ -0,0 +1,38 @@
+package com.gymai.plan_service;
+
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import com.gymai.plan_service.util.Tenths;
+
+/**
+ * Latency of {@link Tenths#round(double)} against the BigDecimal rounding it
+ * replaces, over the samples {@link TenthsTests} checks for identical results.
+ * Needs no database.
+ */
+@Benchmark
+class TenthsBenchmarkTests {
+
+	private static final int SAMPLES = 1_000_000;
+	private static final int ITERATIONS = 20;
+
+	private final double[] values = TenthsTests.samples(SAMPLES);
+
+	@Test
+	void roundingLatency() {
+		report("BigDecimal setScale(1, HALF_UP)", TenthsTests::bigDecimal);
+		report("Tenths.round", Tenths::round);
+	}
+
+	private void report(String label, DoubleUnaryOperator round) {
+		double nanos = BenchmarkHarness.measure(ITERATIONS, ITERATIONS, () -> {
+			double sum = 0;
+			for (double value : values) {
+				sum += round.applyAsDouble(value);
+			}
+			return sum;
+		});
+		BenchmarkHarness.report(label, "%8.1f ns/value", nanos / values.length);
+	}
+}
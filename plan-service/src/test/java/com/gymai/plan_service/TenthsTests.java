@@ -0,0 +1,49 @@
+package com.gymai.plan_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.gymai.plan_service.util.Tenths;
+
+/**
+ * Checks that {@link Tenths#round(double)} returns bit-identical results to
+ * the BigDecimal rounding it replaces, including values next to a tie.
+ */
+class TenthsTests {
+
+	private static final int SAMPLES = 1_000_000;
+
+	@Test
+	void roundingMatchesBigDecimal() {
+		for (double value : samples(SAMPLES)) {
+			assertEquals(Double.doubleToRawLongBits(bigDecimal(value)), Double.doubleToRawLongBits(Tenths.round(value)),
+					() -> "rounding " + value);
+		}
+	}
+
+	static double bigDecimal(double value) {
+		return new BigDecimal(value).setScale(1, RoundingMode.HALF_UP).doubleValue();
+	}
+
+	// Plain quantities, exact hundredths, and the doubles on either side of x.x5
+	static double[] samples(int count) {
+		SplittableRandom random = new SplittableRandom(42);
+		double[] samples = new double[count];
+		for (int i = 0; i < count; i++) {
+			double tie = (random.nextInt(100_000) + 0.5) / 10.0;
+			samples[i] = switch (i % 5) {
+				case 0 -> random.nextDouble() * 5_000;
+				case 1 -> random.nextInt(500_000) / 100.0;
+				case 2 -> tie;
+				case 3 -> Math.nextUp(tie);
+				default -> -Math.nextDown(tie);
+			};
+		}
+		return samples;
+	}
+}
@@ -0,0 +1,45 @@
+package com.gymai.plan_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import com.gymai.plan_service.dto.UserProfileDTO;
+
+/**
+ * Plans response ETags of {@link CacheService}, which must change whenever
+ * the response content can.
+ */
+class CacheServiceTests {
+
+	@Test
+	void plansEtagFollowsProfileAndPlanVersions() {
+		String etag = CacheService.plansEtag(profile(80.0), "7", "9");
+
+		assertEquals(etag, CacheService.plansEtag(profile(80.0), "7", "9"));
+		assertNotEquals(etag, CacheService.plansEtag(profile(81.0), "7", "9"));
+		assertNotEquals(etag, CacheService.plansEtag(profile(80.0), "8", "9"));
+		assertNotEquals(etag, CacheService.plansEtag(profile(80.0), "7", "10"));
+	}
+
+	@Test
+	void plansEtagNeedsBothPlanVersions() {
+		assertNull(CacheService.plansEtag(profile(80.0), null, "9"));
+		assertNull(CacheService.plansEtag(profile(80.0), "7", null));
+	}
+
+	@Test
+	void templatePlanVersionDiffersFromStoredPlanWithSameId() {
+		assertEquals("42", CacheService.planVersion(42L, false));
+		assertEquals("t42", CacheService.planVersion(42L, true));
+		assertNotEquals(CacheService.plansEtag(profile(80.0), "42", "9"),
+				CacheService.plansEtag(profile(80.0), "t42", "9"));
+	}
+
+	private static UserProfileDTO profile(double weight) {
+		return new UserProfileDTO(42L, "Sam", "sam@example.com", 30, 180.0, weight, "MALE", "MUSCLE_GAIN",
+				"MODERATE", "VEG", true);
+	}
+}
@@ -0,0 +1,102 @@
+package com.gymai.plan_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TTL, size bound and snapshot round trip of {@link OffHeapCacheStore}.
+ */
+class OffHeapCacheStoreTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void entriesExpireByTtl() {
+		OffHeapCacheStore store = new OffHeapCacheStore(1024 * 1024, null);
+		store.set("live", bytes(10, 1), 60);
+		store.set("expired", bytes(10, 2), 0);
+
+		assertArrayEquals(bytes(10, 1), store.get("live"));
+		assertNull(store.get("expired"));
+
+		List<CacheStore.Entry> entries = store.getWithTtl(List.of("live", "missing"));
+		long ttl = entries.get(0).ttlMillis();
+		assertTrue(ttl > 55_000 && ttl <= 60_000, "ttl: " + ttl);
+		assertNull(entries.get(1).value());
+	}
+
+	@Test
+	void indexedBytesStayWithinMaxBytes() {
+		OffHeapCacheStore store = new OffHeapCacheStore(1000, null);
+		for (int i = 0; i < 50; i++) {
+			store.set("key" + i, bytes(100, i), 60);
+		}
+
+		assertTrue(store.weightedSize() <= 1000, "weighted size: " + store.weightedSize());
+	}
+
+	@Test
+	void snapshotRoundTrip() {
+		Path snapshot = dir.resolve("cache.bin");
+		OffHeapCacheStore store = new OffHeapCacheStore(1024 * 1024, snapshot);
+		for (int i = 0; i < 5; i++) {
+			store.set("key" + i, bytes(200, i), 60);
+		}
+		store.set("expired", bytes(200, 9), 0);
+		store.invalidate(List.of(), List.of("generation"), null);
+		store.invalidate(List.of(), List.of("generation"), null);
+		store.close();
+
+		OffHeapCacheStore restored = new OffHeapCacheStore(1024 * 1024, snapshot);
+		for (int i = 0; i < 5; i++) {
+			assertArrayEquals(bytes(200, i), restored.get("key" + i));
+		}
+		assertNull(restored.get("expired"));
+		assertEquals(2, restored.getCounter("generation"));
+	}
+
+	@Test
+	void tornSnapshotDropsOnlyTheCutEntry() throws IOException {
+		Path snapshot = dir.resolve("cache.bin");
+		OffHeapCacheStore store = new OffHeapCacheStore(1024 * 1024, snapshot);
+		for (int i = 0; i < 5; i++) {
+			store.set("key" + i, bytes(200, i), 60);
+		}
+		store.close();
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+			channel.truncate(Files.size(snapshot) - 50);
+		}
+
+		OffHeapCacheStore restored = new OffHeapCacheStore(1024 * 1024, snapshot);
+		int loaded = 0;
+		for (int i = 0; i < 5; i++) {
+			byte[] value = restored.get("key" + i);
+			if (value != null) {
+				assertArrayEquals(bytes(200, i), value);
+				loaded++;
+			}
+		}
+		assertEquals(4, loaded);
+	}
+
+	private static byte[] bytes(int length, int seed) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (seed * 31 + i);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,64 @@
+package com.gymai.plan_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * State transitions and recovery callbacks of {@link RedisCircuitBreaker}.
+ */
+class RedisCircuitBreakerTests {
+
+	private final RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker();
+	private final AtomicInteger recoveries = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 2);
+		ReflectionTestUtils.setField(circuitBreaker, "openMs", 0L);
+		circuitBreaker.onRecovery(recoveries::incrementAndGet);
+	}
+
+	@Test
+	void successAfterFailureInClosedStateRecovers() {
+		circuitBreaker.recordFailure();
+		circuitBreaker.recordSuccess();
+		circuitBreaker.recordSuccess();
+
+		assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals(1, recoveries.get());
+	}
+
+	@Test
+	void lateSuccessDoesNotCloseOpenCircuit() {
+		ReflectionTestUtils.setField(circuitBreaker, "openMs", 60_000L);
+		circuitBreaker.recordFailure();
+		circuitBreaker.recordFailure();
+		// A slow call admitted before the circuit opened
+		circuitBreaker.recordSuccess();
+
+		assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.allowRequest());
+		assertEquals(0, recoveries.get());
+	}
+
+	@Test
+	void probeClosesCircuit() {
+		circuitBreaker.recordFailure();
+		circuitBreaker.recordFailure();
+
+		assertTrue(circuitBreaker.allowRequest());
+		assertEquals(RedisCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.allowRequest());
+		circuitBreaker.recordSuccess();
+
+		assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals(1, recoveries.get());
+	}
+}
@@ -0,0 +1,157 @@
+package com.gymai.plan_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.gymai.plan_service.entity.User;
+import com.gymai.plan_service.repository.UserRepository;
+
+/**
+ * Known-email filter, negative cache and registration of
+ * {@link UserLookupService} against an in-memory repository.
+ */
+class UserLookupServiceTests {
+
+	// Stands in for the users table; rebuilds scan it like findAllEmails does
+	private final Map<String, User> users = new ConcurrentHashMap<>();
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final UserLookupService lookup = new UserLookupService();
+	private final RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker();
+
+	@BeforeEach
+	void setUp() throws InterruptedException {
+		when(userRepository.findAllEmails()).thenAnswer(invocation -> List.copyOf(users.keySet()));
+		when(userRepository.findByEmail(anyString()))
+				.thenAnswer(invocation -> Optional.ofNullable(users.get(invocation.<String>getArgument(0))));
+		when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+			User user = invocation.getArgument(0);
+			users.put(user.getEmail(), user);
+			return user;
+		});
+
+		ReflectionTestUtils.setField(lookup, "userRepository", userRepository);
+		ReflectionTestUtils.setField(lookup, "cacheService", new CacheService());
+		ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 1);
+		ReflectionTestUtils.setField(circuitBreaker, "openMs", 60_000L);
+		ReflectionTestUtils.setField(lookup, "circuitBreaker", circuitBreaker);
+		ReflectionTestUtils.setField(lookup, "expectedUsers", 1000);
+		ReflectionTestUtils.setField(lookup, "falsePositiveRate", 0.01);
+		ReflectionTestUtils.setField(lookup, "rebuildMinutes", 30L);
+		ReflectionTestUtils.setField(lookup, "negativeTtlSeconds", 30L);
+		lookup.init();
+		// Only the rebuilds the tests trigger themselves
+		lookup.shutdown();
+		ExecutorService scheduler = (ExecutorService) ReflectionTestUtils.getField(lookup, "rebuildScheduler");
+		scheduler.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void filterHasNoFalseNegatives() {
+		UserLookupService.EmailBloomFilter filter = new UserLookupService.EmailBloomFilter(1000, 0.01);
+		for (int i = 0; i < 1000; i++) {
+			filter.put("user" + i + "@example.com");
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(filter.mightContain("user" + i + "@example.com"));
+			if (filter.mightContain("other" + i + "@example.com")) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 30, "false positives: " + falsePositives);
+	}
+
+	@Test
+	void unknownEmailIsRejectedWithoutQuery() {
+		users.put("known@example.com", user("known@example.com"));
+		lookup.rebuild();
+
+		assertTrue(lookup.findByEmail("unknown@example.com").isEmpty());
+		assertTrue(lookup.findByEmail("known@example.com").isPresent());
+		verify(userRepository, never()).findByEmail("unknown@example.com");
+	}
+
+	@Test
+	void negativeCacheAnswersRepeatedMisses() {
+		// In the filter (as a deleted user or a false positive would be), not in the table
+		users.put("gone@example.com", user("gone@example.com"));
+		lookup.rebuild();
+		users.remove("gone@example.com");
+
+		assertTrue(lookup.findByEmail("gone@example.com").isEmpty());
+		assertTrue(lookup.findByEmail("gone@example.com").isEmpty());
+		verify(userRepository, times(1)).findByEmail("gone@example.com");
+	}
+
+	@Test
+	void savedEmailIsFoundAgain() {
+		lookup.rebuild();
+		assertTrue(lookup.findByEmail("new@example.com").isEmpty());
+
+		lookup.save(user("new@example.com"));
+
+		assertEquals("new@example.com", lookup.findByEmail("new@example.com").orElseThrow().getEmail());
+		// A later rebuild scans the saved row
+		lookup.rebuild();
+		assertTrue(lookup.findByEmail("new@example.com").isPresent());
+	}
+
+	@Test
+	void peerRegistrationIsApplied() {
+		lookup.rebuild();
+		users.put("peer@example.com", user("peer@example.com"));
+		assertTrue(lookup.findByEmail("peer@example.com").isEmpty());
+
+		lookup.onRegistrationMessage("other-node\npeer@example.com");
+
+		assertTrue(lookup.findByEmail("peer@example.com").isPresent());
+		lookup.onRegistrationMessage("malformed");
+		assertFalse(lookup.findByEmail("nobody@example.com").isPresent());
+	}
+
+	@Test
+	void writeLookupIgnoresMissedRegistration() {
+		lookup.rebuild();
+		// Saved on another replica whose message never arrived
+		users.put("elsewhere@example.com", user("elsewhere@example.com"));
+		assertTrue(lookup.findByEmail("elsewhere@example.com").isEmpty());
+
+		assertTrue(lookup.findByEmailForWrite("elsewhere@example.com").isPresent());
+		// The database hit also taught the filter
+		assertTrue(lookup.findByEmail("elsewhere@example.com").isPresent());
+	}
+
+	@Test
+	void filterMissIsConfirmedWhileRedisFails() {
+		lookup.rebuild();
+		users.put("elsewhere@example.com", user("elsewhere@example.com"));
+		circuitBreaker.recordFailure();
+
+		assertTrue(lookup.findByEmail("elsewhere@example.com").isPresent());
+		verify(userRepository, times(1)).findByEmail("elsewhere@example.com");
+	}
+
+	private static User user(String email) {
+		return User.builder().email(email).build();
+	}
+}